@@ -0,0 +1,42 @@
+package stock;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs the benchmarks with the JMH command line options, and adds the GC profiler (allocation rate per
+ * operation and GC counts) unless other profilers were asked for.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    /**
+     * @param args JMH command line options (see -h)
+     * @throws Exception if the options are wrong or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+
+        // Help and lists are printed by the JMH main class
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(options);
+        if (options.getProfilers().isEmpty()) {
+            builder.addProfiler(GCProfiler.class);
+        }
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,69 @@
+package stock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the Date methods on random dates.
+ * Each call takes the next date of a pool, so the branches of the methods are not predicted from one date.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateBenchmark {
+
+    // Size of the pool of dates, a power of 2
+    private static final int POOL_SIZE = 1024;
+
+    private Date[] _dates;
+    private int _next;
+
+    @Setup
+    public void setUp() {
+        _dates = StockData.dates(POOL_SIZE, 42);
+    }
+
+    /**
+     * @return the next date of the pool
+     */
+    private Date nextDate() {
+        _next = (_next + 1) & (POOL_SIZE - 1);
+        return _dates[_next];
+    }
+
+    @Benchmark
+    public boolean before() {
+        return nextDate().before(nextDate());
+    }
+
+    @Benchmark
+    public Date tomorrow() {
+        return nextDate().tomorrow();
+    }
+
+    @Benchmark
+    public int dayInWeek() {
+        return nextDate().dayInWeek();
+    }
+
+    @Benchmark
+    public int difference() {
+        return nextDate().difference(nextDate());
+    }
+}
@@ -0,0 +1,100 @@
+package stock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the day of the week of many dates: the original Zeller's congruence on day, month and year, the
+ * current Date.dayInWeek of each date, and the batch Date.dayInWeek over their epoch days.
+ * The scores are dates per microsecond.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DayInWeekBenchmark {
+
+    private static final int NO_OF_DATES = 4096;
+
+    private Date[] _dates;
+    private int[] _days;
+    private int[] _months;
+    private int[] _years;
+    private int[] _epochDays;
+    private int[] _daysInWeek;
+
+    @Setup
+    public void setUp() {
+        _dates = StockData.dates(NO_OF_DATES, 42);
+        _days = new int[NO_OF_DATES];
+        _months = new int[NO_OF_DATES];
+        _years = new int[NO_OF_DATES];
+        _epochDays = new int[NO_OF_DATES];
+        _daysInWeek = new int[NO_OF_DATES];
+
+        for (int i = 0; i < NO_OF_DATES; i++) {
+            _days[i] = _dates[i].getDay();
+            _months[i] = _dates[i].getMonth();
+            _years[i] = _dates[i].getYear();
+            _epochDays[i] = _dates[i].toEpochDay();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NO_OF_DATES)
+    public int[] original() {
+        for (int i = 0; i < NO_OF_DATES; i++) {
+            _daysInWeek[i] = originalDayInWeek(_days[i], _months[i], _years[i]);
+        }
+        return _daysInWeek;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NO_OF_DATES)
+    public int[] perDate() {
+        for (int i = 0; i < NO_OF_DATES; i++) {
+            _daysInWeek[i] = _dates[i].dayInWeek();
+        }
+        return _daysInWeek;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NO_OF_DATES)
+    public int[] batch() {
+        Date.dayInWeek(_epochDays, _daysInWeek);
+        return _daysInWeek;
+    }
+
+    /**
+     * The original Date.dayInWeek (Zeller's congruence), 0-Saturday 1-Sunday 2-Monday etc.
+     */
+    private static int originalDayInWeek(int day, int month, int year) {
+        int y;
+        int c;
+        if (month < 3) {
+            month += 12;
+            y = (year - 1) % 100;
+            c = (year - 1) / 100;
+        } else {
+            y = year % 100;
+            c = year / 100;
+        }
+        return Math.floorMod((day + (26 * (month + 1)) / 10 + y + y / 4 + c / 4 - 2 * c) % 7, 7);
+    }
+}
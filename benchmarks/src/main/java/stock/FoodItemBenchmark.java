@@ -0,0 +1,48 @@
+package stock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of FoodItem.isFresh on random items and dates.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoodItemBenchmark {
+
+    // Size of the pools of items and dates, a power of 2
+    private static final int POOL_SIZE = 1024;
+
+    private FoodItem[] _items;
+    private Date[] _dates;
+    private int _next;
+
+    @Setup
+    public void setUp() {
+        _items = StockData.items(POOL_SIZE, 1, StockData.Order.RANDOM, 1, 42);
+        _dates = StockData.dates(POOL_SIZE, 43);
+    }
+
+    @Benchmark
+    public boolean isFresh() {
+        _next = (_next + 1) & (POOL_SIZE - 1);
+        return _items[_next].isFresh(_dates[(_next * 7) & (POOL_SIZE - 1)]);
+    }
+}
@@ -0,0 +1,125 @@
+package stock;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the Stock changes at several stock sizes, with the SKUs in catalogue order or in random order,
+ * and with one or many batches per SKU.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StockBenchmark {
+
+    // Number of items in each updateStock call
+    private static final int SALES_PER_CALL = 100;
+    // Quantity of the items, large enough that the sales of a run do not sell any item out
+    private static final int QUANTITY = 1000000000;
+
+    // JMH parameters are named by their fields (-p size=1000)
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    @Param({"SORTED", "RANDOM"})
+    private StockData.Order order;
+
+    @Param({"1", "16"})
+    private int batchesPerSku;
+
+    private FoodItem[] _items;
+    private Stock _stock;
+    private String[] _sales;
+    private FoodItem _identicalItem;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        _items = StockData.items(size, batchesPerSku, order, QUANTITY, 42);
+        _stock = new Stock();
+        for (FoodItem item : _items) {
+            _stock.addItem(item);
+        }
+
+        Random random = new Random(43);
+        _sales = new String[SALES_PER_CALL];
+        for (int i = 0; i < SALES_PER_CALL; i++) {
+            _sales[i] = _items[random.nextInt(size)].getName();
+        }
+
+        FoodItem item = _items[size / 2];
+        _identicalItem = new FoodItem(item);
+        _identicalItem.setQuantity(1);
+    }
+
+    /**
+     * Adds all the items to an empty stock, the score is the number of filled stocks per second.
+     */
+    @Benchmark
+    public Stock addItems() {
+        Stock stock = new Stock();
+        for (FoodItem item : _items) {
+            stock.addItem(item);
+        }
+        return stock;
+    }
+
+    /**
+     * Adds an item that is already in the stock, which only adds to its quantity.
+     */
+    @Benchmark
+    public Stock addIdenticalItem() {
+        _stock.addItem(_identicalItem);
+        return _stock;
+    }
+
+    /**
+     * Sells 100 random items, the score is the number of calls per second.
+     */
+    @Benchmark
+    public Stock updateStock() {
+        _stock.updateStock(_sales);
+        return _stock;
+    }
+
+    /**
+     * A copy of the stock for each removeAfterDate call, made outside the measurement.
+     */
+    @State(Scope.Thread)
+    public static class RemoveState {
+        private Stock _copy;
+
+        @Setup(Level.Invocation)
+        public void copyStock(StockBenchmark benchmark) {
+            _copy = new Stock(benchmark._stock);
+        }
+    }
+
+    /**
+     * Removes the items that expire before the middle of the generated dates (about half of them) from a copy of
+     * the stock.
+     */
+    @Benchmark
+    public Stock removeAfterDate(RemoveState state) {
+        state._copy.removeAfterDate(StockData.middleDate());
+        return state._copy;
+    }
+}
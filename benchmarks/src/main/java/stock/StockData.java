@@ -0,0 +1,110 @@
+package stock;
+
+import java.util.Random;
+
+/**
+ * This class generates the items the benchmarks work on.
+ * <p>
+ * The items are grouped into SKUs (name and catalogue number), each with the same number of batches that differ by
+ * their dates. The SKUs are generated in catalogue order or in random order, so adding them to a stock either
+ * appends at the end of the catalogue or inserts all over it.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public final class StockData {
+
+    // Catalogue numbers that FoodItem accepts
+    private static final int MIN_CATALOGUE_NUM = 1000;
+    private static final int NO_OF_CATALOGUE_NUMS = 9000;
+
+    // Production days are spread over a year from 1/1/2020, items are fresh for 1 to 60 days
+    private static final int FIRST_DAY = Date.of(1, 1, 2020).toEpochDay();
+    private static final int DAYS = 365;
+    private static final int MAX_FRESH_DAYS = 60;
+
+    /**
+     * Order of the generated SKUs.
+     */
+    public enum Order {
+        SORTED, RANDOM
+    }
+
+    private StockData() {
+    }
+
+    /**
+     * Generates items.
+     *
+     * @param noOfItems     the number of items
+     * @param batchesPerSku the number of batches of each SKU
+     * @param order         the order of the SKUs
+     * @param quantity      the quantity of each item
+     * @param seed          the seed of the random dates and order
+     * @return the items, the batches of each SKU together
+     */
+    static FoodItem[] items(int noOfItems, int batchesPerSku, Order order, int quantity, long seed) {
+        Random random = new Random(seed);
+        int noOfSkus = (noOfItems + batchesPerSku - 1) / batchesPerSku;
+
+        int[] skus = new int[noOfSkus];
+        for (int i = 0; i < noOfSkus; i++) {
+            skus[i] = i;
+        }
+        if (order == Order.RANDOM) {
+            for (int i = noOfSkus - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int sku = skus[i];
+                skus[i] = skus[j];
+                skus[j] = sku;
+            }
+        }
+
+        FoodItem[] items = new FoodItem[noOfItems];
+        for (int i = 0; i < noOfItems; i++) {
+            int sku = skus[i / batchesPerSku];
+            // Catalogue numbers rise with the SKU, several SKUs share one when there are more than 9000
+            long catalogueNumber = MIN_CATALOGUE_NUM + (long) sku * NO_OF_CATALOGUE_NUMS / Math.max(noOfSkus, 1);
+            int production = FIRST_DAY + random.nextInt(DAYS);
+            int expiry = production + 1 + random.nextInt(MAX_FRESH_DAYS);
+            int minTemperature = random.nextInt(10) - 5;
+
+            items[i] = new FoodItem(name(sku), catalogueNumber, quantity,
+                    Date.fromEpochDay(production), Date.fromEpochDay(expiry),
+                    minTemperature, minTemperature + random.nextInt(10), 1 + random.nextInt(100));
+        }
+        return items;
+    }
+
+    /**
+     * Generates dates spread over a year from 1/1/2020.
+     *
+     * @param noOfDates the number of dates
+     * @param seed      the seed of the random dates
+     * @return the dates
+     */
+    static Date[] dates(int noOfDates, long seed) {
+        Random random = new Random(seed);
+        Date[] dates = new Date[noOfDates];
+
+        for (int i = 0; i < noOfDates; i++) {
+            dates[i] = Date.fromEpochDay(FIRST_DAY + random.nextInt(DAYS + MAX_FRESH_DAYS));
+        }
+        return dates;
+    }
+
+    /**
+     * @return the day in the middle of the generated expiry dates
+     */
+    static Date middleDate() {
+        return Date.fromEpochDay(FIRST_DAY + (DAYS + MAX_FRESH_DAYS) / 2);
+    }
+
+    /**
+     * @param sku the index of the SKU
+     * @return the name of the items of the SKU
+     */
+    static String name(int sku) {
+        return "item" + sku;
+    }
+}
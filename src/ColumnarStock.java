@@ -0,0 +1,654 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * This class represents a stock object that stores its items by columns.
+ * <p>
+ * Each field of the items is kept in its own array (catalogue numbers, quantities, prices, temperatures and the
+ * production/expiry dates as number of days since 1/1/1970), and names are kept once in a dictionary, with the
+ * items holding the index of their name. Row i of all the arrays is the i-th item in stock order, so the queries
+ * (howMany, howManyPieces, mostExpensive, getTempOfStock) are sequential scans over primitive arrays.
+ * FoodItem objects are only created when an item is returned or printed.
+ * <p>
+ * The stock order and the results of all the methods are the same as in Stock.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class ColumnarStock {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Below this number of rows a query is not split between threads
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+    // The queries that can run in parallel, see Scan
+    private static final int PIECES = 0;
+    private static final int HOW_MANY = 1;
+    private static final int MOST_EXPENSIVE = 2;
+    private static final int HIGHEST_MIN = 3;
+    private static final int LOWEST_MAX = 4;
+
+    // The columns, row i of each array belongs to the i-th item in stock order
+    private long[] _catalogueNumbers;
+    private int[] _nameIds;
+    private int[] _quantities;
+    private int[] _productionDays;
+    private int[] _expiryDays;
+    private int[] _minTemperatures;
+    private int[] _maxTemperatures;
+    private int[] _prices;
+    private int _noOfItems;
+
+    // Dictionary of the names: name id -> name, and name -> name id
+    private String[] _names;
+    private HashMap<String, Integer> _nameIdsByName;
+
+    /**
+     * Iterates over the items in stock order, creating a FoodItem object for each item.
+     */
+    private class RowIterator implements Iterator<FoodItem> {
+        private int _row;
+
+        public boolean hasNext() {
+            return _row < _noOfItems;
+        }
+
+        public FoodItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return itemAt(_row++);
+        }
+    }
+
+    /**
+     * Runs a query over a range of rows, splitting it in two halves (fork/join) while it is above SEQUENTIAL_THRESHOLD.
+     * The halves are always combined left to right, so the result does not depend on the number of threads.
+     */
+    private class Scan extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final int _query;
+        private final int _temp;
+        private final int _from;
+        private final int _to;
+
+        private Scan(int query, int temp, int from, int to) {
+            _query = query;
+            _temp = temp;
+            _from = from;
+            _to = to;
+        }
+
+        protected Integer compute() {
+            if (_to - _from <= SEQUENTIAL_THRESHOLD) {
+                return scan(_query, _temp, _from, _to);
+            }
+
+            int middle = (_from + _to) >>> 1;
+            Scan left = new Scan(_query, _temp, _from, middle);
+            Scan right = new Scan(_query, _temp, middle, _to);
+            left.fork();
+            int rightResult = right.compute();
+            return combine(_query, left.join(), rightResult);
+        }
+    }
+
+    /**
+     * Default Constructor
+     * Creates a new ColumnarStock object
+     */
+    public ColumnarStock() {
+        _catalogueNumbers = new long[INITIAL_CAPACITY];
+        _nameIds = new int[INITIAL_CAPACITY];
+        _quantities = new int[INITIAL_CAPACITY];
+        _productionDays = new int[INITIAL_CAPACITY];
+        _expiryDays = new int[INITIAL_CAPACITY];
+        _minTemperatures = new int[INITIAL_CAPACITY];
+        _maxTemperatures = new int[INITIAL_CAPACITY];
+        _prices = new int[INITIAL_CAPACITY];
+        _noOfItems = 0;
+
+        _names = new String[INITIAL_CAPACITY];
+        _nameIdsByName = new HashMap<String, Integer>();
+    }
+
+    /**
+     * @return the number of products currently in stock
+     */
+    public int getNumOfItems() {
+        return _noOfItems;
+    }
+
+    /**
+     * Inserts a new food item into the stock, if identical item is existing, it adds to it's quantity.
+     * If similar items (same name and catalogue number) are existing, it adds the new item before the similar items.
+     * Otherwise, it inserts it after the items with the same catalogue number.
+     *
+     * @param newItem is a FoodItem object to be inserted into the stock.
+     * @return true if newItem was successfully inserted into the stock.
+     */
+    public boolean addItem(FoodItem newItem) {
+        int nameId = nameIdOf(newItem.getName());
+        long catalogueNumber = newItem.getCatalogueNumber();
+
+        // Rows are sorted by catalogue number, the rows with the same name form one run inside them
+        int row = firstRowOf(catalogueNumber);
+        int end = firstRowOf(catalogueNumber + 1);
+        while (row < end && _nameIds[row] != nameId) {
+            row++;
+        }
+
+        for (int i = row; i < end && _nameIds[i] == nameId; i++) {
+            if (isIdentical(i, newItem)) { // Identical item found -> increase item Quantity
+                int quantity = _quantities[i] + newItem.getQuantity();
+                // Like FoodItem.setQuantity, a sum that is not a valid quantity leaves the quantity unchanged
+                if (quantity >= 0) {
+                    _quantities[i] = quantity;
+                }
+                return true;
+            }
+        }
+
+        // Before the similar items, or after the items with the same catalogue number if there are none
+        insertRow(row, nameId, newItem);
+        return true;
+    }
+
+    /**
+     * Creates a list of items (with different name/catalogue number) if each item's quantity is below the amount parameter.
+     * Items with identical name and catalogue number will be compared to the amount with their mutual quantities.
+     *
+     * @param amount is the max number that if an item quantity passes, is not adjoined to the list.
+     * @return a list of items to order
+     */
+    public String order(int amount) {
+        StringBuilder items = new StringBuilder();
+        int row = 0;
+
+        while (row < _noOfItems) {
+            int currentItemAmount = 0;
+            int first = row;
+
+            // The batches of an item are consecutive rows
+            do {
+                currentItemAmount += _quantities[row];
+                row++;
+            } while (row < _noOfItems && _nameIds[row] == _nameIds[first]
+                    && _catalogueNumbers[row] == _catalogueNumbers[first]);
+
+            if (currentItemAmount < amount) {
+                items.append(_names[_nameIds[first]]);
+                if (row != _noOfItems) {
+                    items.append(", ");
+                }
+            }
+        }
+        return items.toString();
+    }
+
+    /**
+     * Counts items in the stock if the parameter temp (a refrigerator temperature) is between the respective item min/max temperatures.
+     *
+     * @param temp is the temperature in another refrigerator.
+     * @return number of amount that can be moved to another refrigerator.
+     */
+    public int howMany(int temp) {
+        int itemsToMove = 0;
+
+        for (int i = 0; i < _noOfItems; i++) {
+            if (_minTemperatures[i] <= temp && _maxTemperatures[i] >= temp) {
+                itemsToMove += _quantities[i];
+            }
+        }
+        return itemsToMove;
+    }
+
+    /**
+     * Counts the total quantity of the items in the stock.
+     *
+     * @return the total number of quantities in stock.
+     */
+    public int howManyPieces() {
+        int counter = 0;
+
+        for (int i = 0; i < _noOfItems; i++) {
+            counter += _quantities[i];
+        }
+        return counter;
+    }
+
+    /**
+     * Finds the most expensive food item in stock (the first one in stock order if there are several).
+     *
+     * @return a new FoodItem object of the most expensive item in stock, or null if the stock is empty.
+     */
+    public FoodItem mostExpensive() {
+        if (_noOfItems == 0) {
+            return null;
+        }
+
+        int mostExpensiveRow = 0;
+        for (int i = 1; i < _noOfItems; i++) {
+            if (_prices[i] > _prices[mostExpensiveRow]) {
+                mostExpensiveRow = i;
+            }
+        }
+        return itemAt(mostExpensiveRow);
+    }
+
+    /**
+     * Finds the minimal common temperature between the range of (min to max temperatures) for each item so that the refrigerator should be at that temperature to hold all of the stock items.
+     *
+     * @return the minimal temperature the refrigerator should be to hold all the stock items or Integer.MAX_VALUE if minimum common temperature is not found or array is empty of stock.
+     */
+    public int getTempOfStock() {
+        if (_noOfItems == 0) {
+            return Integer.MAX_VALUE;
+        }
+
+        int minTemp = Integer.MIN_VALUE;
+        int maxTemp = Integer.MAX_VALUE;
+        for (int i = 0; i < _noOfItems; i++) {
+            minTemp = Math.max(minTemp, _minTemperatures[i]);
+            maxTemp = Math.min(maxTemp, _maxTemperatures[i]);
+        }
+        return minTemp <= maxTemp ? minTemp : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Counts the total quantity of the items in the stock, splitting large stocks between the threads of the
+     * common fork/join pool. The stock must not be changed during the query.
+     *
+     * @return the total number of quantities in stock (the same as howManyPieces).
+     */
+    public int parallelHowManyPieces() {
+        return parallelScan(PIECES, 0);
+    }
+
+    /**
+     * Counts items in the stock that can be stored at a temperature (like howMany), splitting large stocks between
+     * the threads of the common fork/join pool. The stock must not be changed during the query.
+     *
+     * @param temp is the temperature in another refrigerator.
+     * @return number of amount that can be moved to another refrigerator (the same as howMany).
+     */
+    public int parallelHowMany(int temp) {
+        return parallelScan(HOW_MANY, temp);
+    }
+
+    /**
+     * Finds the most expensive food item in stock (like mostExpensive, the first one in stock order if there are
+     * several), splitting large stocks between the threads of the common fork/join pool.
+     * The stock must not be changed during the query.
+     *
+     * @return a new FoodItem object of the most expensive item in stock, or null if the stock is empty.
+     */
+    public FoodItem parallelMostExpensive() {
+        if (_noOfItems == 0) {
+            return null;
+        }
+        return itemAt(parallelScan(MOST_EXPENSIVE, 0));
+    }
+
+    /**
+     * Finds the minimal common temperature of all the items (like getTempOfStock), splitting large stocks between
+     * the threads of the common fork/join pool. The stock must not be changed during the query.
+     *
+     * @return the minimal temperature the refrigerator should be to hold all the stock items or Integer.MAX_VALUE if minimum common temperature is not found or array is empty of stock.
+     */
+    public int parallelGetTempOfStock() {
+        if (_noOfItems == 0) {
+            return Integer.MAX_VALUE;
+        }
+
+        int minTemp = parallelScan(HIGHEST_MIN, 0);
+        int maxTemp = parallelScan(LOWEST_MAX, 0);
+        return minTemp <= maxTemp ? minTemp : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Runs a query over all the rows, in the calling thread if the stock is small.
+     *
+     * @param query the query (PIECES, HOW_MANY, MOST_EXPENSIVE, HIGHEST_MIN or LOWEST_MAX)
+     * @param temp  the temperature for HOW_MANY
+     * @return the result of the query (a row index for MOST_EXPENSIVE)
+     */
+    private int parallelScan(int query, int temp) {
+        if (_noOfItems <= SEQUENTIAL_THRESHOLD) {
+            return scan(query, temp, 0, _noOfItems);
+        }
+        return new Scan(query, temp, 0, _noOfItems).invoke();
+    }
+
+    /**
+     * Runs a query over a range of rows in the calling thread.
+     *
+     * @param query the query
+     * @param temp  the temperature for HOW_MANY
+     * @param from  the first row (the range is not empty)
+     * @param to    the row after the last row
+     * @return the result of the query for the range
+     */
+    private int scan(int query, int temp, int from, int to) {
+        int result;
+
+        switch (query) {
+            case PIECES:
+                result = 0;
+                for (int i = from; i < to; i++) {
+                    result += _quantities[i];
+                }
+                return result;
+            case HOW_MANY:
+                result = 0;
+                for (int i = from; i < to; i++) {
+                    if (_minTemperatures[i] <= temp && _maxTemperatures[i] >= temp) {
+                        result += _quantities[i];
+                    }
+                }
+                return result;
+            case MOST_EXPENSIVE:
+                result = from;
+                for (int i = from + 1; i < to; i++) {
+                    if (_prices[i] > _prices[result]) {
+                        result = i;
+                    }
+                }
+                return result;
+            case HIGHEST_MIN:
+                result = Integer.MIN_VALUE;
+                for (int i = from; i < to; i++) {
+                    result = Math.max(result, _minTemperatures[i]);
+                }
+                return result;
+            default: // LOWEST_MAX
+                result = Integer.MAX_VALUE;
+                for (int i = from; i < to; i++) {
+                    result = Math.min(result, _maxTemperatures[i]);
+                }
+                return result;
+        }
+    }
+
+    /**
+     * Combines the results of a query over two adjacent ranges of rows.
+     *
+     * @param query the query
+     * @param left  the result of the first range
+     * @param right the result of the range after it
+     * @return the result of both ranges
+     */
+    private int combine(int query, int left, int right) {
+        switch (query) {
+            case MOST_EXPENSIVE:
+                // The first row wins a tie, like in mostExpensive
+                return _prices[right] > _prices[left] ? right : left;
+            case HIGHEST_MIN:
+                return Math.max(left, right);
+            case LOWEST_MAX:
+                return Math.min(left, right);
+            default: // PIECES, HOW_MANY
+                return left + right;
+        }
+    }
+
+    /**
+     * Remove food items from stock that have expiry date before the Date parameter, while keeping the stock organized.
+     *
+     * @param d is the date object to be compared with the expiry dates.
+     */
+    public void removeAfterDate(Date d) {
+        int day = d.toEpochDay();
+        int kept = 0;
+
+        for (int i = 0; i < _noOfItems; i++) {
+            if (_expiryDays[i] >= day) {
+                copyRow(i, kept);
+                kept++;
+            }
+        }
+        _noOfItems = kept;
+    }
+
+    /**
+     * Updates the stock and remove items that were sold given by the itemList.
+     * Each sold item is taken from the first item in stock with the same name, items that reach zero quantity are removed.
+     *
+     * @param itemsList is a list of Strings representing items that were sold
+     */
+    public void updateStock(String[] itemsList) {
+        // Name id -> the row of the first item in stock with that name that was not sold out yet (-1 if none)
+        HashMap<Integer, Integer> cursors = new HashMap<Integer, Integer>();
+
+        // Sold out items are removed together after all the sales were counted
+        boolean[] soldOut = new boolean[_noOfItems];
+        boolean anySoldOut = false;
+
+        for (int i = 0; i < itemsList.length; i++) {
+            Integer nameId = _nameIdsByName.get(itemsList[i]);
+            if (nameId == null) {
+                continue;
+            }
+
+            Integer cursor = cursors.get(nameId);
+            int row = cursor == null ? nextRowOf(nameId, 0) : cursor;
+            if (row < 0) {
+                cursors.put(nameId, row);
+                continue;
+            }
+
+            if (_quantities[row] > 0) {
+                _quantities[row]--;
+            }
+            if (_quantities[row] == 0) {
+                soldOut[row] = true;
+                anySoldOut = true;
+                row = nextRowOf(nameId, row + 1);
+            }
+            cursors.put(nameId, row);
+        }
+
+        if (anySoldOut) {
+            int kept = 0;
+            for (int i = 0; i < soldOut.length; i++) {
+                if (!soldOut[i]) {
+                    copyRow(i, kept);
+                    kept++;
+                }
+            }
+            _noOfItems = kept;
+        }
+    }
+
+    /**
+     * @return a string representation of the stock.
+     */
+    public String toString() {
+        StringBuilder stockHolder = new StringBuilder();
+
+        try {
+            appendTo(stockHolder);
+        } catch (IOException e) { // never thrown by StringBuilder
+            throw new IllegalStateException(e);
+        }
+
+        return stockHolder.toString();
+    }
+
+    /**
+     * Writes the string representation of the stock to out item by item.
+     *
+     * @param out the destination of the stock string, such as a Writer
+     * @throws IOException if out fails to append
+     */
+    public void appendTo(Appendable out) throws IOException {
+        for (int i = 0; i < _noOfItems; i++) {
+            itemAt(i).appendTo(out);
+            out.append('\n');
+        }
+    }
+
+    /**
+     * @return an iterator over the items in stock order (new FoodItem objects, changing them does not change the stock).
+     */
+    Iterator<FoodItem> items() {
+        return new RowIterator();
+    }
+
+    /**
+     * Creates a FoodItem object with the values of a row.
+     *
+     * @param row the row of the item
+     * @return a new FoodItem object
+     */
+    private FoodItem itemAt(int row) {
+        return new FoodItem(_names[_nameIds[row]], _catalogueNumbers[row], _quantities[row],
+                _productionDays[row], _expiryDays[row], _minTemperatures[row], _maxTemperatures[row], _prices[row]);
+    }
+
+    /**
+     * Checks if a row holds an item identical to a food item (excluding the quantity values, like FoodItem.equals).
+     * The name and catalogue number of the row are already known to be the same.
+     *
+     * @param row  the row
+     * @param item the food item
+     * @return true if the items are the same
+     */
+    private boolean isIdentical(int row, FoodItem item) {
+        return _productionDays[row] == item.getProductionEpochDay() && _expiryDays[row] == item.getExpiryEpochDay() &&
+                _minTemperatures[row] == item.getMinTemperature() && _maxTemperatures[row] == item.getMaxTemperature() &&
+                _prices[row] == item.getPrice();
+    }
+
+    /**
+     * Finds the first row with a catalogue number that is not below the given one (binary search).
+     *
+     * @param catalogueNumber the catalogue number
+     * @return the index of the row, or the number of items if all the catalogue numbers are lower
+     */
+    private int firstRowOf(long catalogueNumber) {
+        int low = 0;
+        int high = _noOfItems;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (_catalogueNumbers[middle] < catalogueNumber) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the next row of an item with the given name.
+     *
+     * @param nameId the name id
+     * @param from   the first row to check
+     * @return the index of the row, or -1 if there are no more items with the name
+     */
+    private int nextRowOf(int nameId, int from) {
+        for (int i = from; i < _noOfItems; i++) {
+            if (_nameIds[i] == nameId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the id of a name in the dictionary, adding the name if it is not there.
+     *
+     * @param name the name
+     * @return the id of the name
+     */
+    private int nameIdOf(String name) {
+        Integer nameId = _nameIdsByName.get(name);
+
+        if (nameId == null) {
+            nameId = _nameIdsByName.size();
+            if (nameId == _names.length) {
+                _names = Arrays.copyOf(_names, _names.length * 2);
+            }
+            _names[nameId] = name;
+            _nameIdsByName.put(name, nameId);
+        }
+        return nameId;
+    }
+
+    /**
+     * Inserts a row for a food item, moving the following rows one place forward.
+     *
+     * @param row    the index of the new row
+     * @param nameId the name id of the item
+     * @param item   the food item
+     */
+    private void insertRow(int row, int nameId, FoodItem item) {
+        if (_noOfItems == _catalogueNumbers.length) {
+            grow();
+        }
+
+        int moved = _noOfItems - row;
+        System.arraycopy(_catalogueNumbers, row, _catalogueNumbers, row + 1, moved);
+        System.arraycopy(_nameIds, row, _nameIds, row + 1, moved);
+        System.arraycopy(_quantities, row, _quantities, row + 1, moved);
+        System.arraycopy(_productionDays, row, _productionDays, row + 1, moved);
+        System.arraycopy(_expiryDays, row, _expiryDays, row + 1, moved);
+        System.arraycopy(_minTemperatures, row, _minTemperatures, row + 1, moved);
+        System.arraycopy(_maxTemperatures, row, _maxTemperatures, row + 1, moved);
+        System.arraycopy(_prices, row, _prices, row + 1, moved);
+
+        _catalogueNumbers[row] = item.getCatalogueNumber();
+        _nameIds[row] = nameId;
+        _quantities[row] = item.getQuantity();
+        _productionDays[row] = item.getProductionEpochDay();
+        _expiryDays[row] = item.getExpiryEpochDay();
+        _minTemperatures[row] = item.getMinTemperature();
+        _maxTemperatures[row] = item.getMaxTemperature();
+        _prices[row] = item.getPrice();
+        _noOfItems++;
+    }
+
+    /**
+     * Copies the values of a row to another row (used to close the gaps of removed rows).
+     *
+     * @param from the row to copy
+     * @param to   the row to copy to
+     */
+    private void copyRow(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        _catalogueNumbers[to] = _catalogueNumbers[from];
+        _nameIds[to] = _nameIds[from];
+        _quantities[to] = _quantities[from];
+        _productionDays[to] = _productionDays[from];
+        _expiryDays[to] = _expiryDays[from];
+        _minTemperatures[to] = _minTemperatures[from];
+        _maxTemperatures[to] = _maxTemperatures[from];
+        _prices[to] = _prices[from];
+    }
+
+    /**
+     * Doubles the capacity of all the columns.
+     */
+    private void grow() {
+        int capacity = _catalogueNumbers.length * 2;
+
+        _catalogueNumbers = Arrays.copyOf(_catalogueNumbers, capacity);
+        _nameIds = Arrays.copyOf(_nameIds, capacity);
+        _quantities = Arrays.copyOf(_quantities, capacity);
+        _productionDays = Arrays.copyOf(_productionDays, capacity);
+        _expiryDays = Arrays.copyOf(_expiryDays, capacity);
+        _minTemperatures = Arrays.copyOf(_minTemperatures, capacity);
+        _maxTemperatures = Arrays.copyOf(_maxTemperatures, capacity);
+        _prices = Arrays.copyOf(_prices, capacity);
+    }
+}
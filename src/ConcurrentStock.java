@@ -0,0 +1,384 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents a stock object that can be used by several threads at the same time.
+ * <p>
+ * Items are kept by catalogue number and then by name, each item (name and catalogue number) with its batches,
+ * newest batch first. Adding and removing batches of an item is done under a lock that is chosen by the item
+ * (lock striping), so threads that work on different items do not wait for each other. An item is added to or
+ * removed from the catalogue and the name index under another lock, chosen by the catalogue number or the name,
+ * so the maps of a catalogue number or a name are removed once they are empty. Quantities are changed
+ * without locks (compare and set), and the queries (howManyPieces, howMany, mostExpensive) do not lock at all.
+ * A query that runs during changes sees each batch either before or after each change.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class ConcurrentStock {
+
+    // Quantity of a batch that was removed from the stock
+    private static final int REMOVED = -1;
+
+    private static final int NO_OF_LOCKS = 64;
+
+    // Catalogue number -> (name -> item), and the same items by name -> (catalogue number -> item)
+    private final ConcurrentSkipListMap<Long, ConcurrentSkipListMap<String, Sku>> _catalogue;
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Sku>> _itemsByName;
+
+    // Locks of the items, and locks of the maps in the catalogue and the name index (taken after the item lock)
+    private final Object[] _locks;
+    private final Object[] _indexLocks;
+    private final AtomicInteger _noOfItems;
+
+    /**
+     * Holds the batches of items that share the same name and catalogue number, newest batch first.
+     * The array of batches is replaced (never changed) under the lock of the item, so it can be read without locking.
+     */
+    private static class Sku {
+        private final String _name;
+        private final long _catalogueNumber;
+        private volatile Batch[] _batches = new Batch[0];
+
+        private Sku(String name, long catalogueNumber) {
+            _name = name;
+            _catalogueNumber = catalogueNumber;
+        }
+    }
+
+    /**
+     * A batch in stock: the details of the food item and its current quantity (REMOVED once it left the stock).
+     */
+    private static class Batch {
+        private final FoodItem _item;
+        private final AtomicInteger _quantity;
+
+        private Batch(FoodItem item) {
+            _item = item;
+            _quantity = new AtomicInteger(item.getQuantity());
+        }
+    }
+
+    /**
+     * Creates a new empty ConcurrentStock object
+     */
+    public ConcurrentStock() {
+        _catalogue = new ConcurrentSkipListMap<Long, ConcurrentSkipListMap<String, Sku>>();
+        _itemsByName = new ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Sku>>();
+        _locks = new Object[NO_OF_LOCKS];
+        _indexLocks = new Object[NO_OF_LOCKS];
+        for (int i = 0; i < NO_OF_LOCKS; i++) {
+            _locks[i] = new Object();
+            _indexLocks[i] = new Object();
+        }
+        _noOfItems = new AtomicInteger(0);
+    }
+
+    /**
+     * @return the number of products currently in stock
+     */
+    public int getNumOfItems() {
+        return _noOfItems.get();
+    }
+
+    /**
+     * Inserts a new food item into the stock, if identical item is existing, it adds to it's quantity.
+     * Otherwise, it adds the new item before the similar items (same name and catalogue number).
+     *
+     * @param newItem is a FoodItem object to be inserted into the stock.
+     * @return true if newItem was successfully inserted into the stock.
+     */
+    public boolean addItem(FoodItem newItem) {
+        String name = newItem.getName();
+        long catalogueNumber = newItem.getCatalogueNumber();
+
+        synchronized (lockOf(name, catalogueNumber)) {
+            Map<String, Sku> skus = _catalogue.get(catalogueNumber);
+            Sku sku = skus == null ? null : skus.get(name);
+
+            if (sku == null) {
+                sku = new Sku(name, catalogueNumber);
+                addToIndexes(sku);
+            }
+
+            Batch[] batches = sku._batches;
+            for (Batch batch : batches) {
+                if (batch._item.equals(newItem) && addQuantity(batch, newItem.getQuantity())) {
+                    return true;
+                }
+            }
+
+            Batch[] newBatches = new Batch[batches.length + 1];
+            newBatches[0] = new Batch(new FoodItem(newItem));
+            System.arraycopy(batches, 0, newBatches, 1, batches.length);
+            sku._batches = newBatches;
+            _noOfItems.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Updates the stock and remove items that were sold given by the itemList.
+     * Each sold item is taken from the first batch in stock with the same name, batches that reach zero quantity
+     * are removed. Sales of different threads are applied in any order between them.
+     *
+     * @param itemsList is a list of Strings representing items that were sold
+     */
+    public void updateStock(String[] itemsList) {
+        for (int i = 0; i < itemsList.length; i++) {
+            sell(itemsList[i]);
+        }
+    }
+
+    /**
+     * Takes one unit of an item from the first batch in stock with the given name.
+     *
+     * @param name the name of the item that was sold
+     */
+    private void sell(String name) {
+        ConcurrentSkipListMap<Long, Sku> sameName = _itemsByName.get(name);
+
+        if (sameName == null) {
+            return;
+        }
+
+        while (true) {
+            Batch first = null;
+            Sku firstSku = null;
+            for (Sku sku : sameName.values()) {
+                for (Batch batch : sku._batches) {
+                    // Skips batches that other threads removed and did not take out of the item yet
+                    if (batch._quantity.get() != REMOVED) {
+                        first = batch;
+                        firstSku = sku;
+                        break;
+                    }
+                }
+                if (first != null) {
+                    break;
+                }
+            }
+            if (first == null) {
+                return;
+            }
+
+            int quantity = first._quantity.get();
+            if (quantity > 1) {
+                if (first._quantity.compareAndSet(quantity, quantity - 1)) {
+                    return;
+                }
+            } else if (quantity != REMOVED && first._quantity.compareAndSet(quantity, REMOVED)) {
+                // The last unit (or an empty batch) - the sale removes the batch
+                removeBatch(firstSku, first);
+                return;
+            }
+            // Another thread changed the batch first - try again
+        }
+    }
+
+    /**
+     * Remove food items from stock that have expiry date before the Date parameter.
+     *
+     * @param d is the date object to be compared with the expiry dates.
+     */
+    public void removeAfterDate(Date d) {
+        int day = d.toEpochDay();
+
+        for (Map<String, Sku> skus : _catalogue.values()) {
+            for (Sku sku : skus.values()) {
+                for (Batch batch : sku._batches) {
+                    if (batch._item.getExpiryEpochDay() < day) {
+                        int quantity = batch._quantity.get();
+                        while (quantity != REMOVED && !batch._quantity.compareAndSet(quantity, REMOVED)) {
+                            quantity = batch._quantity.get();
+                        }
+                        if (quantity != REMOVED) {
+                            removeBatch(sku, batch);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts items in the stock if the parameter temp (a refrigerator temperature) is between the respective item min/max temperatures.
+     *
+     * @param temp is the temperature in another refrigerator.
+     * @return number of amount that can be moved to another refrigerator.
+     */
+    public int howMany(int temp) {
+        int itemsToMove = 0;
+
+        for (Map<String, Sku> skus : _catalogue.values()) {
+            for (Sku sku : skus.values()) {
+                for (Batch batch : sku._batches) {
+                    if (batch._item.getMinTemperature() <= temp && batch._item.getMaxTemperature() >= temp) {
+                        itemsToMove += quantityOf(batch);
+                    }
+                }
+            }
+        }
+        return itemsToMove;
+    }
+
+    /**
+     * Counts the total quantity of the items in the stock.
+     *
+     * @return the total number of quantities in stock.
+     */
+    public int howManyPieces() {
+        int counter = 0;
+
+        for (Map<String, Sku> skus : _catalogue.values()) {
+            for (Sku sku : skus.values()) {
+                for (Batch batch : sku._batches) {
+                    counter += quantityOf(batch);
+                }
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Finds the most expensive food item in stock (the first one in stock order if there are several).
+     *
+     * @return a copy of the most expensive item in stock, or null if the stock is empty.
+     */
+    public FoodItem mostExpensive() {
+        Batch mostExpensiveBatch = null;
+
+        for (Map<String, Sku> skus : _catalogue.values()) {
+            for (Sku sku : skus.values()) {
+                for (Batch batch : sku._batches) {
+                    // Skips batches that other threads removed and did not take out of the item yet
+                    if (batch._quantity.get() == REMOVED) {
+                        continue;
+                    }
+                    if (mostExpensiveBatch == null || batch._item.getPrice() > mostExpensiveBatch._item.getPrice()) {
+                        mostExpensiveBatch = batch;
+                    }
+                }
+            }
+        }
+
+        if (mostExpensiveBatch == null) {
+            return null;
+        }
+        FoodItem mostExpensiveItem = new FoodItem(mostExpensiveBatch._item);
+        mostExpensiveItem.setQuantity(quantityOf(mostExpensiveBatch));
+        return mostExpensiveItem;
+    }
+
+    /**
+     * Adds quantity to a batch that is still in stock.
+     *
+     * @param batch the batch
+     * @param delta the quantity to add (not negative)
+     * @return true if the quantity was added, false if the batch was removed
+     */
+    private boolean addQuantity(Batch batch, int delta) {
+        while (true) {
+            int quantity = batch._quantity.get();
+            if (quantity == REMOVED) {
+                return false;
+            }
+            // Like FoodItem.setQuantity, a sum that is not a valid quantity leaves the quantity unchanged
+            if (quantity + delta < 0 || batch._quantity.compareAndSet(quantity, quantity + delta)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes a batch (that its quantity was set to REMOVED) from its item.
+     *
+     * @param sku   the item of the batch
+     * @param batch the batch
+     */
+    private void removeBatch(Sku sku, Batch batch) {
+        synchronized (lockOf(sku._name, sku._catalogueNumber)) {
+            Batch[] batches = sku._batches;
+            int index = 0;
+            while (index < batches.length && batches[index] != batch) {
+                index++;
+            }
+            if (index == batches.length) {
+                return;
+            }
+
+            Batch[] newBatches = new Batch[batches.length - 1];
+            System.arraycopy(batches, 0, newBatches, 0, index);
+            System.arraycopy(batches, index + 1, newBatches, index, batches.length - index - 1);
+            sku._batches = newBatches;
+            _noOfItems.decrementAndGet();
+
+            if (newBatches.length == 0) {
+                removeFromIndexes(sku);
+            }
+        }
+    }
+
+    /**
+     * Adds a new item to the catalogue and to the name index (called under the lock of the item).
+     *
+     * @param sku the item
+     */
+    private void addToIndexes(Sku sku) {
+        synchronized (indexLockOf(Long.hashCode(sku._catalogueNumber))) {
+            _catalogue.computeIfAbsent(sku._catalogueNumber, k -> new ConcurrentSkipListMap<String, Sku>())
+                    .put(sku._name, sku);
+        }
+        synchronized (indexLockOf(sku._name.hashCode())) {
+            _itemsByName.computeIfAbsent(sku._name, k -> new ConcurrentSkipListMap<Long, Sku>())
+                    .put(sku._catalogueNumber, sku);
+        }
+    }
+
+    /**
+     * Removes an item that has no batches from the catalogue and from the name index, and the maps of its
+     * catalogue number and its name if they are empty (called under the lock of the item).
+     *
+     * @param sku the item
+     */
+    private void removeFromIndexes(Sku sku) {
+        synchronized (indexLockOf(Long.hashCode(sku._catalogueNumber))) {
+            ConcurrentSkipListMap<String, Sku> skus = _catalogue.get(sku._catalogueNumber);
+            skus.remove(sku._name);
+            if (skus.isEmpty()) {
+                _catalogue.remove(sku._catalogueNumber);
+            }
+        }
+        synchronized (indexLockOf(sku._name.hashCode())) {
+            ConcurrentSkipListMap<Long, Sku> sameName = _itemsByName.get(sku._name);
+            sameName.remove(sku._catalogueNumber);
+            if (sameName.isEmpty()) {
+                _itemsByName.remove(sku._name);
+            }
+        }
+    }
+
+    /**
+     * @return the quantity of a batch, or 0 if it was removed
+     */
+    private int quantityOf(Batch batch) {
+        return Math.max(batch._quantity.get(), 0);
+    }
+
+    /**
+     * @return the lock of the item with the given name and catalogue number
+     */
+    private Object lockOf(String name, long catalogueNumber) {
+        int hash = name.hashCode() * 31 + Long.hashCode(catalogueNumber);
+        return _locks[(hash ^ (hash >>> 16)) & (NO_OF_LOCKS - 1)];
+    }
+
+    /**
+     * @return the lock of the map of a catalogue number or a name in the indexes, given by the hash of the key
+     */
+    private Object indexLockOf(int hash) {
+        return _indexLocks[(hash ^ (hash >>> 16)) & (NO_OF_LOCKS - 1)];
+    }
+}
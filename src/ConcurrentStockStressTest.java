@@ -0,0 +1,184 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class checks a ConcurrentStock under load: several threads add batches and sell items at the same time,
+ * and the totals of the stock are compared with the totals the threads counted.
+ * <p>
+ * The stock starts with batches of every item. Each thread sells each name at most its share of the starting
+ * quantity of the name, so every sale finds an item to sell, while the small batches are sold out and removed and
+ * new batches (and items) are added by the other threads. At the end the remaining quantity of each name is sold,
+ * and the stock must be empty.
+ * <p>
+ * Usage: java ConcurrentStockStressTest [threads] [operations per thread]
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class ConcurrentStockStressTest {
+
+    private static final int DEFAULT_THREADS = 8;
+    private static final int DEFAULT_OPERATIONS = 100000;
+
+    private static final int NO_OF_NAMES = 16;
+    private static final int NO_OF_CATALOGUE_NUMBERS = 4;
+    private static final int BATCH_QUANTITY = 20;
+    // Batches of an item have one of PRODUCTION_DAYS * FRESH_DAYS dates, batches with the same dates are merged
+    private static final int PRODUCTION_DAYS = 10;
+    private static final int FRESH_DAYS = 5;
+    private static final int MAX_SALE_SIZE = 4;
+
+    // All the items can be held in this temperature
+    private static final int COMMON_TEMPERATURE = 4;
+
+    private ConcurrentStockStressTest() {
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args optional number of threads and operations per thread
+     * @throws Exception if a thread fails
+     * @throws IllegalStateException if the stock does not match the counted totals
+     */
+    public static void main(String[] args) throws Exception {
+        int noOfThreads = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_OPERATIONS;
+
+        ConcurrentStock stock = new ConcurrentStock();
+        long[] quantities = new long[NO_OF_NAMES];
+        for (int name = 0; name < NO_OF_NAMES; name++) {
+            for (int catalogueNumber = 0; catalogueNumber < NO_OF_CATALOGUE_NUMBERS; catalogueNumber++) {
+                for (int dates = 0; dates < PRODUCTION_DAYS * FRESH_DAYS; dates++) {
+                    stock.addItem(newItem(name, catalogueNumber, dates, BATCH_QUANTITY));
+                    quantities[name] += BATCH_QUANTITY;
+                }
+            }
+        }
+        int startItems = stock.getNumOfItems();
+        check(startItems == NO_OF_NAMES * NO_OF_CATALOGUE_NUMBERS * PRODUCTION_DAYS * FRESH_DAYS, "items after filling");
+
+        // Pieces each thread added and sold of each name
+        long[][] added = new long[noOfThreads][NO_OF_NAMES];
+        long[][] sold = new long[noOfThreads][NO_OF_NAMES];
+        Throwable[] failures = new Throwable[noOfThreads];
+        long[] startQuantities = quantities.clone();
+
+        Thread[] threads = new Thread[noOfThreads];
+        for (int i = 0; i < noOfThreads; i++) {
+            int thread = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    runThread(stock, new Random(100 + thread), operations, startQuantities, noOfThreads,
+                            added[thread], sold[thread]);
+                } catch (Throwable e) {
+                    failures[thread] = e;
+                }
+            }, "stress-" + i);
+        }
+
+        long startTime = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long endTime = System.nanoTime();
+
+        for (Throwable failure : failures) {
+            if (failure != null) {
+                throw new IllegalStateException("a thread failed", failure);
+            }
+        }
+
+        long expectedPieces = 0;
+        for (int name = 0; name < NO_OF_NAMES; name++) {
+            for (int thread = 0; thread < noOfThreads; thread++) {
+                quantities[name] += added[thread][name] - sold[thread][name];
+            }
+            expectedPieces += quantities[name];
+        }
+        check(stock.howManyPieces() == expectedPieces,
+                "pieces: " + stock.howManyPieces() + ", expected " + expectedPieces);
+        check(stock.howMany(COMMON_TEMPERATURE) == expectedPieces, "howMany: " + stock.howMany(COMMON_TEMPERATURE));
+        FoodItem mostExpensive = stock.mostExpensive();
+        check(mostExpensive != null && mostExpensive.getQuantity() > 0, "most expensive item: " + mostExpensive);
+
+        // Selling the rest of each name empties the stock
+        for (int name = 0; name < NO_OF_NAMES; name++) {
+            String[] sale = new String[(int) quantities[name]];
+            Arrays.fill(sale, name(name));
+            stock.updateStock(sale);
+        }
+        check(stock.howManyPieces() == 0, "pieces after selling the rest: " + stock.howManyPieces());
+        check(stock.getNumOfItems() == 0, "items after selling the rest: " + stock.getNumOfItems());
+        check(stock.mostExpensive() == null, "most expensive item of an empty stock");
+
+        System.out.printf("threads: %d, operations: %d, time: %.0f ms%n",
+                noOfThreads, (long) noOfThreads * operations, (endTime - startTime) / 1e6);
+        System.out.println("ok");
+    }
+
+    /**
+     * Adds batches and sells items, and counts the added and sold pieces of each name.
+     *
+     * @param stock          the stock
+     * @param random         chooses the operations
+     * @param operations     the number of operations
+     * @param startQuantities the quantity of each name in the stock before the threads started
+     * @param noOfThreads    the number of threads that sell, each sells at most its share of the starting quantities
+     * @param added          filled with the pieces added of each name
+     * @param sold           filled with the pieces sold of each name
+     */
+    private static void runThread(ConcurrentStock stock, Random random, int operations, long[] startQuantities,
+                                  int noOfThreads, long[] added, long[] sold) {
+        ArrayList<String> sale = new ArrayList<String>();
+
+        for (int i = 0; i < operations; i++) {
+            if (random.nextBoolean()) {
+                int name = random.nextInt(NO_OF_NAMES);
+                // A new catalogue number now and then adds a new item
+                int catalogueNumber = random.nextInt(NO_OF_CATALOGUE_NUMBERS + 1);
+                int quantity = 1 + random.nextInt(BATCH_QUANTITY);
+                stock.addItem(newItem(name, catalogueNumber, random.nextInt(PRODUCTION_DAYS * FRESH_DAYS), quantity));
+                added[name] += quantity;
+            } else {
+                sale.clear();
+                int size = 1 + random.nextInt(MAX_SALE_SIZE);
+                for (int item = 0; item < size; item++) {
+                    int name = random.nextInt(NO_OF_NAMES);
+                    if (sold[name] < startQuantities[name] / noOfThreads) {
+                        sale.add(name(name));
+                        sold[name]++;
+                    }
+                }
+                stock.updateStock(sale.toArray(new String[0]));
+            }
+        }
+    }
+
+    /**
+     * @param dates the dates of the batch, 0 to PRODUCTION_DAYS * FRESH_DAYS - 1
+     * @return a batch of an item
+     */
+    private static FoodItem newItem(int name, int catalogueNumber, int dates, int quantity) {
+        int production = Date.of(1, 1, 2020).toEpochDay() + dates / FRESH_DAYS;
+        int price = 1 + (name * NO_OF_CATALOGUE_NUMBERS + catalogueNumber) % 7;
+
+        return new FoodItem(name(name), 1000 + catalogueNumber, quantity,
+                Date.fromEpochDay(production), Date.fromEpochDay(production + 1 + dates % FRESH_DAYS),
+                COMMON_TEMPERATURE - name % 3, COMMON_TEMPERATURE + catalogueNumber % 3, price);
+    }
+
+    private static String name(int name) {
+        return "item" + name;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("check failed: " + message);
+        }
+    }
+}
@@ -1,45 +1,82 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * This class represents a Date object
+ * <p>
+ * Dates should be treated as values: Date.of (and the other methods that say so) returns a shared (canonical) Date
+ * object for each date, which cannot be changed. The deprecated setters are kept for the Date objects that the older
+ * methods return, which are new objects as before: the constructors, tomorrow, and the dates of a FoodItem.
  *
  * @author Noy Segal
  * @version 2020a
  */
 public class Date {
-    private int _day;
-    private int _month;
-    private int _year;
+    //number of days since 1/1/1970 (negative for earlier dates)
+    private int _epochDay;
 
     //months of the year
-    private final int JAN = 1;
-    private final int FEB = 2;
-    private final int MAR = 3;
-    private final int APR = 4;
-    private final int MAY = 5;
-    private final int JUN = 6;
-    private final int JUL = 7;
-    private final int AUG = 8;
-    private final int SEP = 9;
-    private final int OCT = 10;
-    private final int NOV = 11;
-    private final int DEC = 12;
+    private static final int JAN = 1;
+    private static final int FEB = 2;
+    private static final int MAR = 3;
+    private static final int APR = 4;
+    private static final int MAY = 5;
+    private static final int JUN = 6;
+    private static final int JUL = 7;
+    private static final int AUG = 8;
+    private static final int SEP = 9;
+    private static final int OCT = 10;
+    private static final int NOV = 11;
+    private static final int DEC = 12;
 
     //constants that represents different days min/max of different months
-    private final int MIN_DAY = 1;
-    private final int DAYS_LONG_MONTH = 31;
-    private final int DAYS_SHORT_MONTH = 30;
-    private final int DAYS_FEB_NO_LEAP_YEAR = 28;
-    private final int DAYS_FEB_LEAP_YEAR = 29;
+    private static final int MIN_DAY = 1;
+    private static final int DAYS_LONG_MONTH = 31;
+    private static final int DAYS_SHORT_MONTH = 30;
+    private static final int DAYS_FEB_NO_LEAP_YEAR = 28;
+    private static final int DAYS_FEB_LEAP_YEAR = 29;
 
     //constants of year limits
-    private final int MAX_YEAR = 9999;
-    private final int MIN_YEAR = 1000;
+    private static final int MAX_YEAR = 9999;
+    private static final int MIN_YEAR = 1000;
 
     //constant of default date
-    private final int DEFAULT_DAY = 1;
-    private final int DEFAULT_MONTH = 1;
-    private final int DEFAULT_YEAR = 2000;
+    private static final int DEFAULT_DAY = 1;
+    private static final int DEFAULT_MONTH = 1;
+    private static final int DEFAULT_YEAR = 2000;
+
+    private static final int MONTHS_IN_YEAR = 12;
+
+    //number of days in a month by [leap year bit << LEAP_YEAR_SHIFT | month]
+    private static final int LEAP_YEAR_SHIFT = 4;
+    private static final int[] DAYS_IN_MONTH = daysInMonthTable();
+
+    //bit set of the leap years, bit (year - MIN_YEAR) is set for a leap year
+    private static final long[] LEAP_YEARS = leapYearsTable();
+
+    //length of the string dd/mm/yyyy
+    private static final int DATE_STRING_LENGTH = 10;
 
-    private final int MONTHS_IN_YEAR = 12;
+    //constants of the epoch day conversion (400 years cycle, days between 1/3/0000 and 1/1/1970)
+    private static final int DAYS_IN_400_YEARS = 146097;
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    private static final int DEFAULT_EPOCH_DAY = toEpochDay(DEFAULT_DAY, DEFAULT_MONTH, DEFAULT_YEAR);
+    private static final int MAX_EPOCH_DAY = toEpochDay(DAYS_LONG_MONTH, DEC, MAX_YEAR);
+    private static final int MIN_EPOCH_DAY = toEpochDay(MIN_DAY, JAN, MIN_YEAR);
+
+    //1/1/1970 was a Thursday (5), the offset keeps the sum positive for all the supported dates
+    private static final int DAYS_IN_WEEK = 7;
+    private static final int EPOCH_DAY_IN_WEEK = 5;
+    private static final int WEEK_OFFSET = (-MIN_EPOCH_DAY / DAYS_IN_WEEK + 1) * DAYS_IN_WEEK + EPOCH_DAY_IN_WEEK;
+
+    //shared Date objects of all the valid dates, created on first use in blocks of consecutive days
+    private static final int CACHE_BLOCK_BITS = 9;
+    private static final int CACHE_BLOCK_SIZE = 1 << CACHE_BLOCK_BITS;
+    private static final AtomicReferenceArray<Date[]> CACHE =
+            new AtomicReferenceArray<Date[]>(((MAX_EPOCH_DAY - MIN_EPOCH_DAY) >> CACHE_BLOCK_BITS) + 1);
 
     /**
      * Constructs a Date object.
@@ -51,13 +88,9 @@ public class Date {
      */
     public Date(int day, int month, int year) {
         if (validDate(day, month, year)) {
-            _day = day;
-            _month = month;
-            _year = year;
+            _epochDay = toEpochDay(day, month, year);
         } else {
-            _day = DEFAULT_DAY;
-            _month = DEFAULT_MONTH;
-            _year = DEFAULT_YEAR;
+            _epochDay = DEFAULT_EPOCH_DAY;
         }
     }
 
@@ -68,9 +101,32 @@ public class Date {
      * @param other the Date object from which to construct the new date
      */
     public Date(Date other) {
-        _day = other._day;
-        _month = other._month;
-        _year = other._year;
+        _epochDay = other._epochDay;
+    }
+
+    /**
+     * Returns the shared Date object of a date.
+     * If the date is not valid, returns the date 1/1/2000 (like the constructor).
+     *
+     * @param day   the day in the month (1-31)
+     * @param month the month in the year (1-12)
+     * @param year  the year (4 digits)
+     * @return the shared Date object of the date, which cannot be changed
+     */
+    public static Date of(int day, int month, int year) {
+        if (validDate(day, month, year)) {
+            return fromEpochDay(toEpochDay(day, month, year));
+        }
+        return fromEpochDay(DEFAULT_EPOCH_DAY);
+    }
+
+    /**
+     * Constructs a Date object from a number of days since 1/1/1970 of a valid date.
+     *
+     * @param epochDay number of days since 1/1/1970
+     */
+    private Date(int epochDay) {
+        _epochDay = epochDay;
     }
 
     /**
@@ -81,50 +137,69 @@ public class Date {
      * @param year  the year (4 digits)
      * @return True if date is valid
      */
-    private boolean validDate(int day, int month, int year) {
-        boolean flagYear = false;
-        boolean flagMonth = false;
-        boolean flagDay = false;
+    private static boolean validDate(int day, int month, int year) {
+        if (year < MIN_YEAR || year > MAX_YEAR || month < JAN || month > DEC) {
+            return false;
+        }
 
-        boolean isLeap = isLeapYear(year);
+        return day >= MIN_DAY && day <= DAYS_IN_MONTH[leapYearBit(year) << LEAP_YEAR_SHIFT | month];
+    }
 
-        //Checks if year is valid
-        if (year >= MIN_YEAR && year <= MAX_YEAR) {
-            flagYear = true;
-        }
+    /**
+     * Looks up if a supported year (1000-9999) is a leap year.
+     *
+     * @param year the year (4 digits)
+     * @return 1 if the year is a leap year, otherwise 0
+     */
+    private static int leapYearBit(int year) {
+        int index = year - MIN_YEAR;
+        return (int) (LEAP_YEARS[index >>> 6] >>> index) & 1;
+    }
 
-        //Checks if month and day are valid
-        //Months of max 31 days
-        if (month == JAN || month == MAR || month == MAY || month == JUL ||
-                month == AUG || month == OCT || month == DEC) {
-            if (day >= MIN_DAY && day <= DAYS_LONG_MONTH) {
-                flagDay = true;
-                flagMonth = true;
-            }
-        }
-        //Months of max 30 days
-        else if (month == APR || month == JUN || month == SEP || month == NOV) {
-            if (day >= MIN_DAY && day <= DAYS_SHORT_MONTH) {
-                flagDay = true;
-                flagMonth = true;
-            }
-        }
-        //Special case of February
-        else if (month == FEB) {
-            if (isLeap) {
-                if (day >= MIN_DAY && day <= DAYS_FEB_LEAP_YEAR) {
-                    flagDay = true;
-                    flagMonth = true;
+    /**
+     * Builds the table of the number of days in each month, see DAYS_IN_MONTH.
+     *
+     * @return the table
+     */
+    private static int[] daysInMonthTable() {
+        int[] table = new int[2 << LEAP_YEAR_SHIFT];
+
+        for (int leap = 0; leap <= 1; leap++) {
+            for (int month = JAN; month <= DEC; month++) {
+                int days;
+                //Months of max 31 days
+                if (month == JAN || month == MAR || month == MAY || month == JUL ||
+                        month == AUG || month == OCT || month == DEC) {
+                    days = DAYS_LONG_MONTH;
+                }
+                //Months of max 30 days
+                else if (month == APR || month == JUN || month == SEP || month == NOV) {
+                    days = DAYS_SHORT_MONTH;
                 }
-            } else { //not a leap year
-                if (day >= MIN_DAY && day <= DAYS_FEB_NO_LEAP_YEAR) {
-                    flagDay = true;
-                    flagMonth = true;
+                //Special case of February
+                else {
+                    days = leap == 1 ? DAYS_FEB_LEAP_YEAR : DAYS_FEB_NO_LEAP_YEAR;
                 }
+                table[leap << LEAP_YEAR_SHIFT | month] = days;
             }
         }
+        return table;
+    }
+
+    /**
+     * Builds the bit set of the leap years, see LEAP_YEARS.
+     *
+     * @return the bit set
+     */
+    private static long[] leapYearsTable() {
+        long[] bits = new long[(MAX_YEAR - MIN_YEAR) / 64 + 1];
 
-        return flagDay && flagMonth && flagYear;
+        for (int year = MIN_YEAR; year <= MAX_YEAR; year++) {
+            if (isLeapYear(year)) {
+                bits[(year - MIN_YEAR) >>> 6] |= 1L << (year - MIN_YEAR);
+            }
+        }
+        return bits;
     }
 
     /**
@@ -133,7 +208,7 @@ public class Date {
      * @param year the year
      * @return True if the received year is a leap year
      */
-    private boolean isLeapYear(int year) {
+    private static boolean isLeapYear(int year) {
         boolean flag = false;
 
         if (year % 400 == 0) {
@@ -165,31 +240,7 @@ public class Date {
      * @return true if this date is before other date
      */
     public boolean before(Date other) {
-        boolean flag = false;
-
-        if (_year < other._year) {
-            flag = true;
-        } else if (_year > other._year) {
-            flag = false;
-        }
-        //Same year
-        else {
-            if (_month < other._month) {
-                flag = true;
-            } else if (_month > other._month) {
-                flag = false;
-            }
-            //same month
-            else {
-                if (_day < other._day) {
-                    flag = true;
-                } else {
-                    flag = false;
-                }
-            }
-        }
-
-        return flag;
+        return _epochDay < other._epochDay;
     }
 
     /**
@@ -198,28 +249,23 @@ public class Date {
      * @return number between 0-6 that represents the current day: 0 - Saturday, 1 - Sunday, etc.
      */
     public int dayInWeek() {
-        int D = _day;
-        int M = _month;
-        int Y;
-        int C;
-        //January and February treated as 13 and 14 as of last year.
-        if (M < MAR) {
-            M += MONTHS_IN_YEAR;
-
-            //Below March, year is treated to be the last year.
-            Y = (_year - 1) % 100;
-            C = (_year - 1) / 100;
-        } else {
-            //dividing by 100 to get first two digits and last two digits of the year
-            Y = _year % 100;
-            C = _year / 100;
-        }
+        return (_epochDay + WEEK_OFFSET) % DAYS_IN_WEEK;
+    }
 
-        //using the formula: Day = (D + (26×(M+1))/10 + Y + Y/4 + C/4 - 2×C) mod 7
-        int res = (D + (26 * (M + 1)) / 10 + Y + Y / 4 + C / 4 - 2 * C) % 7;
+    /**
+     * Calculates the day of the week of many dates at once, 0-Saturday 1-Sunday 2-Monday etc.
+     * The loop has no branches, so the JIT compiler can use vector instructions for it.
+     *
+     * @param epochDays  numbers of days since 1/1/1970 of dates in the supported years (1000-9999)
+     * @param daysInWeek filled with the day of the week of each date (0-6), at the same index
+     * @throws IndexOutOfBoundsException if daysInWeek is shorter than epochDays
+     */
+    public static void dayInWeek(int[] epochDays, int[] daysInWeek) {
+        Objects.checkFromIndexSize(0, epochDays.length, daysInWeek.length);
 
-        //Sometimes the result is negative, so Math.floorMod fix the issue by transferring the result to 0-6
-        return Math.floorMod(res, 7);
+        for (int i = 0; i < epochDays.length; i++) {
+            daysInWeek[i] = (epochDays[i] + WEEK_OFFSET) % DAYS_IN_WEEK;
+        }
     }
 
     /**
@@ -229,7 +275,7 @@ public class Date {
      * @return difference in days between this date and other date.
      */
     public int difference(Date other) {
-        return Math.abs(calculateDate(_day, _month, _year) - calculateDate(other._day, other._month, other._year));
+        return Math.abs(_epochDay - other._epochDay);
     }
 
     /**
@@ -239,38 +285,105 @@ public class Date {
      * @return True if both dates are the same
      */
     public boolean equals(Date other) {
-        return (_day == other._day) && (_month == other._month) && (_year == other._year);
+        return _epochDay == other._epochDay;
+    }
+
+    /**
+     * @return the number of days since 1/1/1970 (negative for earlier dates)
+     */
+    public int toEpochDay() {
+        return _epochDay;
+    }
+
+    /**
+     * Returns the date of a number of days since 1/1/1970.
+     * If the date is not in the supported years (1000-9999), returns the date 1/1/2000.
+     *
+     * @param epochDay number of days since 1/1/1970 (negative for earlier dates)
+     * @return the shared Date object of the date, which cannot be changed
+     */
+    public static Date fromEpochDay(int epochDay) {
+        if (epochDay < MIN_EPOCH_DAY || epochDay > MAX_EPOCH_DAY) {
+            epochDay = DEFAULT_EPOCH_DAY;
+        }
+
+        int offset = epochDay - MIN_EPOCH_DAY;
+        int blockIndex = offset >> CACHE_BLOCK_BITS;
+        Date[] block = CACHE.get(blockIndex);
+
+        if (block == null) {
+            // The whole block is created before it is published, so other threads see complete Date objects
+            block = new Date[CACHE_BLOCK_SIZE];
+            int firstDay = MIN_EPOCH_DAY + (blockIndex << CACHE_BLOCK_BITS);
+            for (int i = 0; i < CACHE_BLOCK_SIZE; i++) {
+                block[i] = new Date(firstDay + i);
+            }
+            if (!CACHE.compareAndSet(blockIndex, null, block)) {
+                block = CACHE.get(blockIndex);
+            }
+        }
+        return block[offset & (CACHE_BLOCK_SIZE - 1)];
+    }
+
+    /**
+     * @return the shared Date object of this date (this object if it is the shared one)
+     */
+    Date canonical() {
+        return fromEpochDay(_epochDay);
+    }
+
+    /**
+     * Makes sure this Date object can be changed. Only the shared objects, which older code never got, cannot be.
+     *
+     * @throws UnsupportedOperationException if this is a shared Date object
+     */
+    private void checkNotShared() {
+        if (canonical() == this) {
+            throw new UnsupportedOperationException("shared Date objects cannot be changed");
+        }
     }
 
     /**
      * @return the day of the date
      */
     public int getDay() {
-        return _day;
+        int dayOfYear = dayOfMarchYear(_epochDay);
+        int marchMonth = marchMonth(dayOfYear);
+        return dayOfYear - (153 * marchMonth + 2) / 5 + 1;
     }
 
     /**
      * @return the month of the date
      */
     public int getMonth() {
-        return _month;
+        int marchMonth = marchMonth(dayOfMarchYear(_epochDay));
+        return marchMonth < 10 ? marchMonth + 3 : marchMonth - 9;
     }
 
     /**
      * @return the year of the date
      */
     public int getYear() {
-        return _year;
+        int dayOfYear = dayOfMarchYear(_epochDay);
+        int year = marchYear(_epochDay);
+        //January and February belong to the next calendar year
+        return marchMonth(dayOfYear) < 10 ? year : year + 1;
     }
 
     /**
      * sets the day (only if date remains valid)
      *
      * @param dayToSet the day to set if valid date
+     * @throws UnsupportedOperationException if this is a shared Date object (see Date.of)
+     * @deprecated Date objects should be treated as values, use Date.of to get the date that is needed
      */
+    @Deprecated
     public void setDay(int dayToSet) {
-        if (validDate(dayToSet, _month, _year)) {
-            _day = dayToSet;
+        checkNotShared();
+        int month = getMonth();
+        int year = getYear();
+        if (validDate(dayToSet, month, year)) {
+            _epochDay = toEpochDay(dayToSet, month, year);
         }
     }
 
@@ -278,10 +391,16 @@ public class Date {
      * set the month (only if date remains valid)
      *
      * @param monthToSet the month to set if valid date
+     * @throws UnsupportedOperationException if this is a shared Date object (see Date.of)
+     * @deprecated Date objects should be treated as values, use Date.of to get the date that is needed
      */
+    @Deprecated
     public void setMonth(int monthToSet) {
-        if (validDate(_day, monthToSet, _year)) {
-            _month = monthToSet;
+        checkNotShared();
+        int day = getDay();
+        int year = getYear();
+        if (validDate(day, monthToSet, year)) {
+            _epochDay = toEpochDay(day, monthToSet, year);
         }
     }
 
@@ -289,81 +408,310 @@ public class Date {
      * sets the year (only if date remains valid)
      *
      * @param yearToSet the year to set if valid
+     * @throws UnsupportedOperationException if this is a shared Date object (see Date.of)
+     * @deprecated Date objects should be treated as values, use Date.of to get the date that is needed
      */
+    @Deprecated
     public void setYear(int yearToSet) {
-        if (validDate(_day, _month, yearToSet)) {
-            _year = yearToSet;
+        checkNotShared();
+        int day = getDay();
+        int month = getMonth();
+        if (validDate(day, month, yearToSet)) {
+            _epochDay = toEpochDay(day, month, yearToSet);
         }
     }
 
     /**
      * Calculates next day's date
      *
-     * @return a new Date object that represents tomorrow's date
+     * @return a new Date object that represents tomorrow's date (see plusDays for the shared one)
      */
     public Date tomorrow() {
-        Date tomorrowDate = new Date(this);
-
-        if (validDate(tomorrowDate._day + 1, tomorrowDate._month, tomorrowDate._year)) {
-            tomorrowDate._day += 1;
+        //Max date supported (31.12.9999)
+        if (_epochDay == MAX_EPOCH_DAY) {
+            return new Date(DEFAULT_EPOCH_DAY);
         }
-        //end of the month
-        else if (validDate(MIN_DAY, tomorrowDate._month + 1, tomorrowDate._year)) {
-            tomorrowDate._day = MIN_DAY;
-            tomorrowDate._month += 1;
+
+        return new Date(_epochDay + 1);
+    }
+
+    /**
+     * Calculates the date a number of days after this date.
+     * If the result is not in the supported years (1000-9999), returns the date 1/1/2000.
+     *
+     * @param days the number of days to add (negative to go back)
+     * @return the shared Date object of the result
+     */
+    public Date plusDays(int days) {
+        long epochDay = (long) _epochDay + days;
+
+        if (epochDay < MIN_EPOCH_DAY || epochDay > MAX_EPOCH_DAY) {
+            return fromEpochDay(DEFAULT_EPOCH_DAY);
         }
-        //end of the year
-        else if (validDate(MIN_DAY, JAN, tomorrowDate._year + 1)) {
-            tomorrowDate._day = MIN_DAY;
-            tomorrowDate._month = JAN;
-            tomorrowDate._year += 1;
+        return fromEpochDay((int) epochDay);
+    }
+
+    /**
+     * Calculates the date a number of days before this date.
+     * If the result is not in the supported years (1000-9999), returns the date 1/1/2000.
+     *
+     * @param days the number of days to subtract (negative to go forward)
+     * @return the shared Date object of the result
+     */
+    public Date minusDays(int days) {
+        long epochDay = (long) _epochDay - days;
+
+        if (epochDay < MIN_EPOCH_DAY || epochDay > MAX_EPOCH_DAY) {
+            return fromEpochDay(DEFAULT_EPOCH_DAY);
         }
-        //Max date supported (31.12.9999)
-        else {
-            tomorrowDate._day = DEFAULT_DAY;
-            tomorrowDate._month = DEFAULT_MONTH;
-            tomorrowDate._year = DEFAULT_YEAR;
+        return fromEpochDay((int) epochDay);
+    }
+
+    /**
+     * Calculates the date a number of months after this date.
+     * If the day does not exist in the result month, the last day of that month is used (31/1 + 1 month is 28/2 or 29/2).
+     * If the result is not in the supported years (1000-9999), returns the date 1/1/2000.
+     *
+     * @param months the number of months to add (negative to go back)
+     * @return the shared Date object of the result
+     */
+    public Date plusMonths(int months) {
+        long monthCount = (long) getYear() * MONTHS_IN_YEAR + (getMonth() - JAN) + months;
+        long year = Math.floorDiv(monthCount, MONTHS_IN_YEAR);
+        int month = Math.floorMod(monthCount, MONTHS_IN_YEAR) + JAN;
+
+        if (year < MIN_YEAR || year > MAX_YEAR) {
+            return fromEpochDay(DEFAULT_EPOCH_DAY);
         }
 
-        return tomorrowDate;
+        int day = Math.min(getDay(), DAYS_IN_MONTH[leapYearBit((int) year) << LEAP_YEAR_SHIFT | month]);
+        return fromEpochDay(toEpochDay(day, month, (int) year));
     }
 
     /**
      * @return a string representation of this date (dd/mm/yyyy)
      */
     public String toString() {
-        String dateHolder = "";
+        char[] dateHolder = new char[DATE_STRING_LENGTH];
 
-        if (_day < 10) {
-            dateHolder += "0" + _day + "/";
-        } else {
-            dateHolder += _day + "/";
+        formatTo(dateHolder, 0);
+
+        return new String(dateHolder);
+    }
+
+    /**
+     * Writes the string representation of this date (dd/mm/yyyy) to out, without creating intermediate strings.
+     *
+     * @param out the destination of the date string
+     * @throws IOException if out fails to append
+     */
+    public void appendTo(Appendable out) throws IOException {
+        int date = packedDate();
+        int day = date % 100;
+        int month = date / 100 % 100;
+        int year = date / 10000;
+
+        out.append((char) ('0' + day / 10)).append((char) ('0' + day % 10)).append('/');
+        out.append((char) ('0' + month / 10)).append((char) ('0' + month % 10)).append('/');
+        out.append((char) ('0' + year / 1000)).append((char) ('0' + year / 100 % 10))
+                .append((char) ('0' + year / 10 % 10)).append((char) ('0' + year % 10));
+    }
+
+    /**
+     * Writes this date as dd/mm/yyyy (10 characters) into a char array.
+     *
+     * @param dest   the array to write to
+     * @param offset the index of the first character
+     * @return the index after the last character that was written
+     * @throws IndexOutOfBoundsException if there is no room for the date in dest
+     */
+    public int formatTo(char[] dest, int offset) {
+        Objects.checkFromIndexSize(offset, DATE_STRING_LENGTH, dest.length);
+        int date = packedDate();
+        int day = date % 100;
+        int month = date / 100 % 100;
+        int year = date / 10000;
+
+        dest[offset] = (char) ('0' + day / 10);
+        dest[offset + 1] = (char) ('0' + day % 10);
+        dest[offset + 2] = '/';
+        dest[offset + 3] = (char) ('0' + month / 10);
+        dest[offset + 4] = (char) ('0' + month % 10);
+        dest[offset + 5] = '/';
+        dest[offset + 6] = (char) ('0' + year / 1000);
+        dest[offset + 7] = (char) ('0' + year / 100 % 10);
+        dest[offset + 8] = (char) ('0' + year / 10 % 10);
+        dest[offset + 9] = (char) ('0' + year % 10);
+        return offset + DATE_STRING_LENGTH;
+    }
+
+    /**
+     * Writes this date as dd/mm/yyyy (10 ASCII bytes) into a byte array.
+     *
+     * @param dest   the array to write to
+     * @param offset the index of the first byte
+     * @return the index after the last byte that was written
+     * @throws IndexOutOfBoundsException if there is no room for the date in dest
+     */
+    public int formatTo(byte[] dest, int offset) {
+        Objects.checkFromIndexSize(offset, DATE_STRING_LENGTH, dest.length);
+        int date = packedDate();
+        int day = date % 100;
+        int month = date / 100 % 100;
+        int year = date / 10000;
+
+        dest[offset] = (byte) ('0' + day / 10);
+        dest[offset + 1] = (byte) ('0' + day % 10);
+        dest[offset + 2] = '/';
+        dest[offset + 3] = (byte) ('0' + month / 10);
+        dest[offset + 4] = (byte) ('0' + month % 10);
+        dest[offset + 5] = '/';
+        dest[offset + 6] = (byte) ('0' + year / 1000);
+        dest[offset + 7] = (byte) ('0' + year / 100 % 10);
+        dest[offset + 8] = (byte) ('0' + year / 10 % 10);
+        dest[offset + 9] = (byte) ('0' + year % 10);
+        return offset + DATE_STRING_LENGTH;
+    }
+
+    /**
+     * Parses a date written as dd/mm/yyyy (the format of toString).
+     * If the numbers are not a valid date, returns the date 1/1/2000 (like the constructor).
+     *
+     * @param text the date string (exactly 10 characters)
+     * @return the shared Date object of the date
+     * @throws IllegalArgumentException if the text is not written as dd/mm/yyyy
+     */
+    public static Date parse(CharSequence text) {
+        if (text.length() != DATE_STRING_LENGTH) {
+            throw new IllegalArgumentException("not a dd/mm/yyyy date: " + text);
         }
+        return parse(text, 0);
+    }
 
-        if (_month < 10) {
-            dateHolder += "0" + _month + "/";
-        } else {
-            dateHolder += _month + "/";
+    /**
+     * Parses a date written as dd/mm/yyyy (the format of toString) at an index of a text.
+     * If the numbers are not a valid date, returns the date 1/1/2000 (like the constructor).
+     *
+     * @param text   the text
+     * @param offset the index of the first character of the date
+     * @return the shared Date object of the date
+     * @throws IllegalArgumentException  if the characters are not written as dd/mm/yyyy
+     * @throws IndexOutOfBoundsException if the text ends before the date
+     */
+    public static Date parse(CharSequence text, int offset) {
+        Objects.checkFromIndexSize(offset, DATE_STRING_LENGTH, text.length());
+
+        int c0 = text.charAt(offset) - '0';
+        int c1 = text.charAt(offset + 1) - '0';
+        int c3 = text.charAt(offset + 3) - '0';
+        int c4 = text.charAt(offset + 4) - '0';
+        int c6 = text.charAt(offset + 6) - '0';
+        int c7 = text.charAt(offset + 7) - '0';
+        int c8 = text.charAt(offset + 8) - '0';
+        int c9 = text.charAt(offset + 9) - '0';
+
+        // A character below '0' gives a negative value, so one test covers all of them
+        if ((c0 | c1 | c3 | c4 | c6 | c7 | c8 | c9) < 0
+                || c0 > 9 || c1 > 9 || c3 > 9 || c4 > 9 || c6 > 9 || c7 > 9 || c8 > 9 || c9 > 9
+                || text.charAt(offset + 2) != '/' || text.charAt(offset + 5) != '/') {
+            throw new IllegalArgumentException("not a dd/mm/yyyy date: " + text.subSequence(offset, offset + DATE_STRING_LENGTH));
+        }
+
+        return of(c0 * 10 + c1, c3 * 10 + c4, c6 * 1000 + c7 * 100 + c8 * 10 + c9);
+    }
+
+    /**
+     * Parses a date written as dd/mm/yyyy in ASCII (the format of toString) at an index of a byte array.
+     * If the numbers are not a valid date, returns the date 1/1/2000 (like the constructor).
+     *
+     * @param bytes  the bytes
+     * @param offset the index of the first byte of the date
+     * @return the shared Date object of the date
+     * @throws IllegalArgumentException  if the bytes are not written as dd/mm/yyyy
+     * @throws IndexOutOfBoundsException if the array ends before the date
+     */
+    public static Date parse(byte[] bytes, int offset) {
+        Objects.checkFromIndexSize(offset, DATE_STRING_LENGTH, bytes.length);
+
+        int c0 = bytes[offset] - '0';
+        int c1 = bytes[offset + 1] - '0';
+        int c3 = bytes[offset + 3] - '0';
+        int c4 = bytes[offset + 4] - '0';
+        int c6 = bytes[offset + 6] - '0';
+        int c7 = bytes[offset + 7] - '0';
+        int c8 = bytes[offset + 8] - '0';
+        int c9 = bytes[offset + 9] - '0';
+
+        if ((c0 | c1 | c3 | c4 | c6 | c7 | c8 | c9) < 0
+                || c0 > 9 || c1 > 9 || c3 > 9 || c4 > 9 || c6 > 9 || c7 > 9 || c8 > 9 || c9 > 9
+                || bytes[offset + 2] != '/' || bytes[offset + 5] != '/') {
+            throw new IllegalArgumentException("not a dd/mm/yyyy date: "
+                    + new String(bytes, offset, DATE_STRING_LENGTH, StandardCharsets.ISO_8859_1));
         }
 
-        dateHolder += _year;
+        return of(c0 * 10 + c1, c3 * 10 + c4, c6 * 1000 + c7 * 100 + c8 * 10 + c9);
+    }
 
-        return dateHolder;
+    /**
+     * @return this date as the number yyyymmdd (day, month and year are decoded from the epoch day once)
+     */
+    private int packedDate() {
+        int dayOfYear = dayOfMarchYear(_epochDay);
+        int marchMonth = marchMonth(dayOfYear);
+        int day = dayOfYear - (153 * marchMonth + 2) / 5 + 1;
+
+        //January and February belong to the next calendar year
+        if (marchMonth < 10) {
+            return marchYear(_epochDay) * 10000 + (marchMonth + 3) * 100 + day;
+        }
+        return (marchYear(_epochDay) + 1) * 10000 + (marchMonth - 9) * 100 + day;
     }
 
     /**
-     * Computes the day number since the beginning of the Christian counting of years
+     * Computes the number of days between 1/1/1970 and the given date
      *
      * @param day   the day of the month (1-31)
      * @param month the month in the year (1-12)
      * @param year  the year (4 digits)
-     * @return number of days since the beginning of the Christian counting of years
+     * @return number of days since 1/1/1970 (negative for earlier dates)
      */
-    private int calculateDate(int day, int month, int year) {
-        if (month < 3) {
+    private static int toEpochDay(int day, int month, int year) {
+        //January and February are counted as the last months of the previous year
+        if (month < MAR) {
             year--;
-            month = month + 12;
+            month = month + MONTHS_IN_YEAR;
         }
-        return 365 * year + year / 4 - year / 100 + year / 400 + ((month + 1) * 306) / 10 + (day - 62);
+        return 365 * year + year / 4 - year / 100 + year / 400 + (153 * (month - MAR) + 2) / 5 + day - 1 - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * @param epochDay number of days since 1/1/1970
+     * @return the year of the date, when years are counted from March to February
+     */
+    private static int marchYear(int epochDay) {
+        int days = epochDay + DAYS_0000_TO_1970;
+        int era = days / DAYS_IN_400_YEARS;
+        int dayOfEra = days - era * DAYS_IN_400_YEARS;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / (DAYS_IN_400_YEARS - 1)) / 365;
+        return era * 400 + yearOfEra;
+    }
+
+    /**
+     * @param epochDay number of days since 1/1/1970
+     * @return the day in the year (0-365), when years are counted from March to February
+     */
+    private static int dayOfMarchYear(int epochDay) {
+        int days = epochDay + DAYS_0000_TO_1970;
+        int dayOfEra = days % DAYS_IN_400_YEARS;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / (DAYS_IN_400_YEARS - 1)) / 365;
+        return dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    }
+
+    /**
+     * @param dayOfMarchYear the day in the year (0-365), when years are counted from March to February
+     * @return the month (0-11), 0 - March, 1 - April, etc.
+     */
+    private static int marchMonth(int dayOfMarchYear) {
+        return (5 * dayOfMarchYear + 2) / 153;
     }
 }
@@ -0,0 +1,181 @@
+/**
+ * This class checks Date against the original implementation of its methods (kept here as a reference), for every
+ * date of the supported range (1000-9999) and for the invalid values around it.
+ * Checked: validation in the constructor, Date.of and the setters, tomorrow, and dayInWeek (of each date and in a
+ * batch).
+ * <p>
+ * Usage: java DateCompatibilityCheck
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class DateCompatibilityCheck {
+
+    // The checked values, one beyond each end of the valid values
+    private static final int FIRST_YEAR = 999;
+    private static final int LAST_YEAR = 10000;
+    private static final int FIRST_MONTH = 0;
+    private static final int LAST_MONTH = 13;
+    private static final int FIRST_DAY = 0;
+    private static final int LAST_DAY = 32;
+
+    // The original default date
+    private static final int DEFAULT_DAY = 1;
+    private static final int DEFAULT_MONTH = 1;
+    private static final int DEFAULT_YEAR = 2000;
+
+    private DateCompatibilityCheck() {
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args not used
+     * @throws IllegalStateException if a result differs from the original implementation
+     */
+    public static void main(String[] args) {
+        long checked = 0;
+        long validDates = 0;
+        int[] epochDays = new int[Date.of(31, 12, 9999).toEpochDay() - Date.of(1, 1, 1000).toEpochDay() + 1];
+        int[] expectedDaysInWeek = new int[epochDays.length];
+
+        for (int year = FIRST_YEAR; year <= LAST_YEAR; year++) {
+            for (int month = FIRST_MONTH; month <= LAST_MONTH; month++) {
+                for (int day = FIRST_DAY; day <= LAST_DAY; day++) {
+                    boolean valid = originalValidDate(day, month, year);
+                    int[] expected = valid ? new int[]{day, month, year}
+                            : new int[]{DEFAULT_DAY, DEFAULT_MONTH, DEFAULT_YEAR};
+
+                    check(new Date(day, month, year), expected, "new Date", day, month, year);
+                    check(Date.of(day, month, year), expected, "Date.of", day, month, year);
+                    checked++;
+
+                    if (valid) {
+                        checkValidDate(day, month, year);
+                        epochDays[(int) validDates] = Date.of(day, month, year).toEpochDay();
+                        expectedDaysInWeek[(int) validDates] = originalDayInWeek(day, month, year);
+                        validDates++;
+                    }
+                }
+            }
+        }
+
+        int[] daysInWeek = new int[epochDays.length];
+        Date.dayInWeek(epochDays, daysInWeek);
+        for (int i = 0; i < epochDays.length; i++) {
+            if (daysInWeek[i] != expectedDaysInWeek[i]) {
+                throw new IllegalStateException("batch dayInWeek of " + Date.fromEpochDay(epochDays[i]) + " is "
+                        + daysInWeek[i] + ", expected " + expectedDaysInWeek[i]);
+            }
+        }
+
+        System.out.printf("checked %d day/month/year values, %d valid dates%n", checked, validDates);
+        System.out.println("ok");
+    }
+
+    /**
+     * Checks the methods of a valid date.
+     */
+    @SuppressWarnings("deprecation")
+    private static void checkValidDate(int day, int month, int year) {
+        check(new Date(day, month, year).tomorrow(), originalTomorrow(day, month, year), "tomorrow", day, month, year);
+        if (Date.of(day, month, year).dayInWeek() != originalDayInWeek(day, month, year)) {
+            throw new IllegalStateException("dayInWeek of " + day + "/" + month + "/" + year + " is "
+                    + Date.of(day, month, year).dayInWeek() + ", expected " + originalDayInWeek(day, month, year));
+        }
+
+        // The setters keep the date if the result would not be valid, like the original ones
+        for (int value = FIRST_DAY; value <= LAST_DAY; value++) {
+            Date date = new Date(day, month, year);
+            date.setDay(value);
+            check(date, originalValidDate(value, month, year) ? new int[]{value, month, year}
+                    : new int[]{day, month, year}, "setDay(" + value + ")", day, month, year);
+        }
+        for (int value = FIRST_MONTH; value <= LAST_MONTH; value++) {
+            Date date = new Date(day, month, year);
+            date.setMonth(value);
+            check(date, originalValidDate(day, value, year) ? new int[]{day, value, year}
+                    : new int[]{day, month, year}, "setMonth(" + value + ")", day, month, year);
+        }
+        // Years around the date, and the ends of the range
+        int[] years = {year - 4, year - 1, year + 1, year + 4, FIRST_YEAR, LAST_YEAR};
+        for (int value : years) {
+            Date date = new Date(day, month, year);
+            date.setYear(value);
+            check(date, originalValidDate(day, month, value) ? new int[]{day, month, value}
+                    : new int[]{day, month, year}, "setYear(" + value + ")", day, month, year);
+        }
+    }
+
+    /**
+     * The original Date.validDate.
+     */
+    private static boolean originalValidDate(int day, int month, int year) {
+        boolean flagYear = year >= 1000 && year <= 9999;
+        boolean flagDay = false;
+
+        if (month == 1 || month == 3 || month == 5 || month == 7 || month == 8 || month == 10 || month == 12) {
+            flagDay = day >= 1 && day <= 31;
+        } else if (month == 4 || month == 6 || month == 9 || month == 11) {
+            flagDay = day >= 1 && day <= 30;
+        } else if (month == 2) {
+            flagDay = day >= 1 && day <= (originalIsLeapYear(year) ? 29 : 28);
+        }
+        return flagDay && flagYear;
+    }
+
+    /**
+     * The original Date.isLeapYear.
+     */
+    private static boolean originalIsLeapYear(int year) {
+        if (year % 400 == 0) {
+            return true;
+        } else if (year % 100 == 0) {
+            return false;
+        }
+        return year % 4 == 0;
+    }
+
+    /**
+     * The original Date.tomorrow.
+     *
+     * @return day, month and year of the next date
+     */
+    private static int[] originalTomorrow(int day, int month, int year) {
+        if (originalValidDate(day + 1, month, year)) {
+            return new int[]{day + 1, month, year};
+        } else if (originalValidDate(1, month + 1, year)) {
+            return new int[]{1, month + 1, year};
+        } else if (originalValidDate(1, 1, year + 1)) {
+            return new int[]{1, 1, year + 1};
+        }
+        return new int[]{DEFAULT_DAY, DEFAULT_MONTH, DEFAULT_YEAR};
+    }
+
+    /**
+     * The original Date.dayInWeek (Zeller's congruence), 0-Saturday 1-Sunday 2-Monday etc.
+     */
+    private static int originalDayInWeek(int day, int month, int year) {
+        int y;
+        int c;
+        if (month < 3) {
+            month += 12;
+            y = (year - 1) % 100;
+            c = (year - 1) / 100;
+        } else {
+            y = year % 100;
+            c = year / 100;
+        }
+        return Math.floorMod((day + (26 * (month + 1)) / 10 + y + y / 4 + c / 4 - 2 * c) % 7, 7);
+    }
+
+    /**
+     * @throws IllegalStateException if a date is not the expected day, month and year
+     */
+    private static void check(Date date, int[] expected, String method, int day, int month, int year) {
+        if (date.getDay() != expected[0] || date.getMonth() != expected[1] || date.getYear() != expected[2]) {
+            throw new IllegalStateException(method + " of " + day + "/" + month + "/" + year + " is " + date
+                    + ", expected " + expected[0] + "/" + expected[1] + "/" + expected[2]);
+        }
+    }
+}
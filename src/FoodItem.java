@@ -1,3 +1,5 @@
+import java.io.IOException;
+
 /**
  * This class represents a food item object
  *
@@ -75,12 +77,12 @@ public class FoodItem {
         }
 
 
-        _productionDate = new Date(productionDate);
+        _productionDate = productionDate.canonical();
 
         if (expiryDate.before(productionDate)) {
-            _expiryDate = _productionDate.tomorrow();
+            _expiryDate = _productionDate.plusDays(1);
         } else {
-            _expiryDate = new Date(expiryDate);
+            _expiryDate = expiryDate.canonical();
         }
 
 
@@ -100,6 +102,38 @@ public class FoodItem {
         }
     }
 
+    /**
+     * Creates a FoodItem object from values that are already valid, without checking them.
+     * Used to restore items that were stored by a stock.
+     *
+     * @param name            - name of food item
+     * @param catalogueNumber - catalogue number of food item
+     * @param quantity        - quantity of food item
+     * @param productionDay   - production date as number of days since 1/1/1970
+     * @param expiryDay       - expiry date as number of days since 1/1/1970
+     * @param minTemperature  - minimum storage temperature
+     * @param maxTemperature  - maximum storage temperature
+     * @param price           - unit price
+     */
+    FoodItem(String name,
+             long catalogueNumber,
+             int quantity,
+             int productionDay,
+             int expiryDay,
+             int minTemperature,
+             int maxTemperature,
+             int price) {
+
+        _name = name;
+        _catalogueNumber = catalogueNumber;
+        _quantity = quantity;
+        _productionDate = Date.fromEpochDay(productionDay);
+        _expiryDate = Date.fromEpochDay(expiryDay);
+        _minTemperature = minTemperature;
+        _maxTemperature = maxTemperature;
+        _price = price;
+    }
+
     /**
      * Copy constructor for FoodItem.
      * Construct a FoodItem with the same variables as another FoodItem.
@@ -114,8 +148,9 @@ public class FoodItem {
 
         _quantity = other._quantity;
 
-        _productionDate = new Date(other._productionDate);
-        _expiryDate = new Date(other._expiryDate);
+        // Dates are shared, they cannot be changed
+        _productionDate = other._productionDate;
+        _expiryDate = other._expiryDate;
 
         _minTemperature = other._minTemperature;
         _maxTemperature = other._maxTemperature;
@@ -145,12 +180,19 @@ public class FoodItem {
     }
 
     /**
-     * @return the expiry date of the food item
+     * @return the expiry date of the food item (a copy, which can be changed without changing the item)
      */
     public Date getExpiryDate() {
         return new Date(_expiryDate);
     }
 
+    /**
+     * @return the expiry date of the food item as number of days since 1/1/1970 (without copying the date)
+     */
+    int getExpiryEpochDay() {
+        return _expiryDate.toEpochDay();
+    }
+
     /**
      * @return the max temperature of the food item
      */
@@ -180,12 +222,19 @@ public class FoodItem {
     }
 
     /**
-     * @return the production date of the food item
+     * @return the production date of the food item (a copy, which can be changed without changing the item)
      */
     public Date getProductionDate() {
         return new Date(_productionDate);
     }
 
+    /**
+     * @return the production date of the food item as number of days since 1/1/1970 (without copying the date)
+     */
+    int getProductionEpochDay() {
+        return _productionDate.toEpochDay();
+    }
+
     /**
      * @return the quantity of the food item
      */
@@ -229,9 +278,9 @@ public class FoodItem {
      * @return true if d is between (and including) production date and expiry date
      */
     public boolean isFresh(Date d) {
-        return (d.after(_productionDate) && d.before(_expiryDate)) ||
-                d.equals(_productionDate) ||
-                d.equals(_expiryDate);
+        int day = d.toEpochDay();
+
+        return day >= _productionDate.toEpochDay() && day <= _expiryDate.toEpochDay();
     }
 
     /**
@@ -252,7 +301,7 @@ public class FoodItem {
     public void setExpiryDate(Date d) {
 
         if (!d.before(_productionDate)) {
-            _expiryDate = new Date(d);
+            _expiryDate = d.canonical();
         }
     }
 
@@ -276,7 +325,7 @@ public class FoodItem {
     public void setProductionDate(Date d) {
 
         if (!d.after(_expiryDate)) {
-            _productionDate = new Date(d);
+            _productionDate = d.canonical();
         }
     }
 
@@ -296,13 +345,51 @@ public class FoodItem {
      * @return a string representation of this food item
      */
     public String toString() {
-        String foodItemHolder = "FoodItem: ";
-        foodItemHolder += _name + "\tCatalogueNumber: ";
-        foodItemHolder += _catalogueNumber + "\tProductionDate: ";
-        foodItemHolder += _productionDate + "\tExpiryDate: ";
-        foodItemHolder += _expiryDate + "\tQuantity: ";
-        foodItemHolder += _quantity;
-
-        return foodItemHolder;
+        StringBuilder foodItemHolder = new StringBuilder();
+
+        try {
+            appendTo(foodItemHolder);
+        } catch (IOException e) { // never thrown by StringBuilder
+            throw new IllegalStateException(e);
+        }
+
+        return foodItemHolder.toString();
+    }
+
+    /**
+     * Writes the string representation of this food item to out, without creating intermediate strings.
+     *
+     * @param out the destination of the food item string
+     * @throws IOException if out fails to append
+     */
+    public void appendTo(Appendable out) throws IOException {
+        out.append("FoodItem: ");
+        out.append(_name).append("\tCatalogueNumber: ");
+        appendNumber(out, _catalogueNumber);
+        out.append("\tProductionDate: ");
+        _productionDate.appendTo(out);
+        out.append("\tExpiryDate: ");
+        _expiryDate.appendTo(out);
+        out.append("\tQuantity: ");
+        appendNumber(out, _quantity);
+    }
+
+    /**
+     * Writes the decimal digits of a non negative number to out.
+     *
+     * @param out the destination of the digits
+     * @param n   the number (not negative)
+     * @throws IOException if out fails to append
+     */
+    private static void appendNumber(Appendable out, long n) throws IOException {
+        long divisor = 1;
+
+        while (divisor <= n / 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            out.append((char) ('0' + n / divisor % 10));
+            divisor /= 10;
+        }
     }
 }
@@ -0,0 +1,344 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * This class represents an index of the fresh periods of the items of a stock, used to find the items that are
+ * fresh on a date or during a range of dates.
+ * <p>
+ * The fresh period of an item is the range of days from its production date to its expiry date (inclusive).
+ * The periods are kept in an interval tree: a balanced search tree (AVL tree) ordered by the first day of the
+ * periods, where each node also keeps the highest last day in its subtree. A query skips the subtrees whose periods
+ * all end before the range or all start after it, so it costs O(log n) for each period it returns, and adding or
+ * removing a period costs O(log n).
+ * <p>
+ * Like PersistentSortedSet, the index can be shared with its snapshots: a node is changed in place only by the index
+ * that created it, the other nodes are copied before they are changed.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+class FreshnessIndex {
+
+    private Node _root;
+    private int _size;
+    // The nodes created by this index since its last snapshot, the other nodes are shared and must not be changed
+    private Object _owner;
+
+    // By first day, equal days in stock order, so each period of a stock has its own place
+    private static final Comparator<Period> BY_FIRST_DAY = (first, second) -> {
+        if (first._firstDay != second._firstDay) {
+            return Integer.compare(first._firstDay, second._firstDay);
+        }
+        return compareInStockOrder(first, second);
+    };
+
+    /**
+     * The fresh period of a stored item, and the place of the item in stock order: the catalogue number, the group
+     * of the item among the groups with that number and the batch of the item in its group.
+     */
+    private static class Period {
+        private final FoodItem _item;
+        private final int _firstDay;
+        private final int _lastDay;
+        private final long _catalogueNumber;
+        private final long _groupSequence;
+        private final long _batchSequence;
+
+        private Period(FoodItem item, long groupSequence, long batchSequence) {
+            _item = item;
+            _firstDay = item.getProductionEpochDay();
+            _lastDay = item.getExpiryEpochDay();
+            _catalogueNumber = item.getCatalogueNumber();
+            _groupSequence = groupSequence;
+            _batchSequence = batchSequence;
+        }
+    }
+
+    /**
+     * A node of the tree.
+     */
+    private static class Node {
+        private final Object _owner;
+        private Period _period;
+        private Node _left;
+        private Node _right;
+        private int _height;
+        // The highest last day of the periods in the subtree of the node
+        private int _maxLastDay;
+
+        private Node(Period period, Object owner) {
+            _owner = owner;
+            _period = period;
+            _height = 1;
+            _maxLastDay = period._lastDay;
+        }
+
+        private Node(Node other, Object owner) {
+            _owner = owner;
+            _period = other._period;
+            _left = other._left;
+            _right = other._right;
+            _height = other._height;
+            _maxLastDay = other._maxLastDay;
+        }
+    }
+
+    /**
+     * Creates a new empty FreshnessIndex object
+     */
+    FreshnessIndex() {
+        _root = null;
+        _size = 0;
+        _owner = new Object();
+    }
+
+    /**
+     * Takes a snapshot of the index in O(1), see PersistentSortedSet.snapshot.
+     *
+     * @return an index with the periods of this index at the time of the call
+     */
+    FreshnessIndex snapshot() {
+        FreshnessIndex snapshot = new FreshnessIndex();
+
+        snapshot._root = _root;
+        snapshot._size = _size;
+        _owner = new Object();
+        return snapshot;
+    }
+
+    /**
+     * Adds the fresh period of a stored item, or replaces the item that has the same period and place in stock order.
+     *
+     * @param item          the stored item
+     * @param groupSequence the place of the group of the item among the groups with its catalogue number
+     * @param batchSequence the place of the item in its group
+     */
+    void put(FoodItem item, long groupSequence, long batchSequence) {
+        _root = put(_root, new Period(item, groupSequence, batchSequence));
+    }
+
+    /**
+     * Removes the fresh period of a stored item, given as it was added.
+     *
+     * @param item          the stored item
+     * @param groupSequence the place of the group of the item among the groups with its catalogue number
+     * @param batchSequence the place of the item in its group
+     */
+    void remove(FoodItem item, long groupSequence, long batchSequence) {
+        _root = remove(_root, new Period(item, groupSequence, batchSequence));
+    }
+
+    /**
+     * Finds the items that are fresh on a day.
+     *
+     * @param day the day (days since 1/1/1970)
+     * @return the stored items that are fresh on the day, in stock order
+     */
+    FoodItem[] freshOn(int day) {
+        return freshBetween(day, day);
+    }
+
+    /**
+     * Finds the items that are fresh on at least one day of a range of days.
+     *
+     * @param firstDay the first day of the range (days since 1/1/1970)
+     * @param lastDay  the last day of the range (inclusive)
+     * @return the stored items that are fresh during the range, in stock order
+     */
+    FoodItem[] freshBetween(int firstDay, int lastDay) {
+        Period[] found = new Period[16];
+        int noOfFound = 0;
+
+        // The nodes whose subtrees are left to search
+        Node[] pending = new Node[64];
+        int noOfPending = 0;
+        if (_root != null) {
+            pending[noOfPending++] = _root;
+        }
+
+        while (noOfPending > 0) {
+            Node node = pending[--noOfPending];
+
+            if (node._maxLastDay < firstDay) { // All the periods of the subtree end before the range
+                continue;
+            }
+            if (noOfPending + 2 > pending.length) {
+                pending = Arrays.copyOf(pending, pending.length * 2);
+            }
+            if (node._left != null) {
+                pending[noOfPending++] = node._left;
+            }
+            // The node and its right subtree start after the range if the node does
+            if (node._period._firstDay <= lastDay) {
+                if (node._period._lastDay >= firstDay) {
+                    if (noOfFound == found.length) {
+                        found = Arrays.copyOf(found, found.length * 2);
+                    }
+                    found[noOfFound++] = node._period;
+                }
+                if (node._right != null) {
+                    pending[noOfPending++] = node._right;
+                }
+            }
+        }
+
+        Arrays.sort(found, 0, noOfFound, FreshnessIndex::compareInStockOrder);
+        FoodItem[] items = new FoodItem[noOfFound];
+        for (int i = 0; i < noOfFound; i++) {
+            items[i] = found[i]._item;
+        }
+        return items;
+    }
+
+    private static int compareInStockOrder(Period first, Period second) {
+        if (first._catalogueNumber != second._catalogueNumber) {
+            return Long.compare(first._catalogueNumber, second._catalogueNumber);
+        }
+        if (first._groupSequence != second._groupSequence) {
+            return Long.compare(first._groupSequence, second._groupSequence);
+        }
+        return Long.compare(first._batchSequence, second._batchSequence);
+    }
+
+    private Node put(Node node, Period period) {
+        if (node == null) {
+            _size++;
+            return new Node(period, _owner);
+        }
+
+        int comparison = BY_FIRST_DAY.compare(period, node._period);
+        node = editable(node);
+        if (comparison < 0) {
+            node._left = put(node._left, period);
+        } else if (comparison > 0) {
+            node._right = put(node._right, period);
+        } else {
+            node._period = period;
+        }
+        return balance(node);
+    }
+
+    /**
+     * Removes the period equal to probe from a subtree. If the subtree does not have it, no node is copied.
+     */
+    private Node remove(Node node, Period probe) {
+        if (node == null) {
+            return null;
+        }
+
+        int comparison = BY_FIRST_DAY.compare(probe, node._period);
+
+        if (comparison == 0) {
+            _size--;
+            if (node._left == null) {
+                return node._right;
+            }
+            if (node._right == null) {
+                return node._left;
+            }
+            // The lowest period of the right subtree takes the place of the removed period
+            node = editable(node);
+            node._period = lowest(node._right)._period;
+            node._right = removeLowest(node._right);
+            return balance(node);
+        }
+
+        int size = _size;
+        Node child = remove(comparison < 0 ? node._left : node._right, probe);
+        if (_size == size) {
+            return node;
+        }
+
+        node = editable(node);
+        if (comparison < 0) {
+            node._left = child;
+        } else {
+            node._right = child;
+        }
+        return balance(node);
+    }
+
+    private Node removeLowest(Node node) {
+        if (node._left == null) {
+            return node._right;
+        }
+        node = editable(node);
+        node._left = removeLowest(node._left);
+        return balance(node);
+    }
+
+    private static Node lowest(Node node) {
+        while (node._left != null) {
+            node = node._left;
+        }
+        return node;
+    }
+
+    /**
+     * @return the node itself if this index created it since its last snapshot, otherwise a copy of it owned by
+     * this index
+     */
+    private Node editable(Node node) {
+        return node._owner == _owner ? node : new Node(node, _owner);
+    }
+
+    /**
+     * Restores the balance of an editable node whose subtrees differ in height by at most 2, and updates the
+     * heights and the highest last days on the way.
+     *
+     * @return the root of the balanced subtree
+     */
+    private Node balance(Node node) {
+        int balance = height(node._left) - height(node._right);
+
+        if (balance > 1) {
+            if (height(node._left._left) < height(node._left._right)) {
+                node._left = rotateLeft(editable(node._left));
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node._right._right) < height(node._right._left)) {
+                node._right = rotateRight(editable(node._right));
+            }
+            return rotateLeft(node);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = editable(node._left);
+
+        node._left = left._right;
+        update(node);
+        left._right = node;
+        update(left);
+        return left;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = editable(node._right);
+
+        node._right = right._left;
+        update(node);
+        right._left = node;
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node._height = Math.max(height(node._left), height(node._right)) + 1;
+        node._maxLastDay = node._period._lastDay;
+        if (node._left != null) {
+            node._maxLastDay = Math.max(node._maxLastDay, node._left._maxLastDay);
+        }
+        if (node._right != null) {
+            node._maxLastDay = Math.max(node._maxLastDay, node._right._maxLastDay);
+        }
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node._height;
+    }
+}
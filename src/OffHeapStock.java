@@ -0,0 +1,512 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class represents a stock object that keeps its items outside of the Java heap, for very large stocks.
+ * <p>
+ * Each item is a fixed size record in a direct buffer:
+ * catalogue number (long), name id (int), quantity (int), production day (int), expiry day (int),
+ * min temperature (int), max temperature (int), price (int), next record (int), previous record (int).
+ * Dates are kept as number of days since 1/1/1970, and names are kept once in a dictionary on the heap.
+ * The records of an item (same name and catalogue number) are linked newest batch first, and an open addressing
+ * hash table (also in a direct buffer) maps (name id, catalogue number) to the first record of the item.
+ * The index slots of the items with the same name are linked by catalogue number, and a third direct buffer holds
+ * the first slot of each name id, so selling a name only visits the items with that name.
+ * Records of removed items are reused, so the heap usage does not grow with the number of items.
+ * <p>
+ * addItem, updateStock, removeAfterDate and howMany give the same results as in Stock.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class OffHeapStock {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // Record layout (byte offsets)
+    private static final int CATALOGUE = 0;
+    private static final int NAME = 8;
+    private static final int QUANTITY = 12;
+    private static final int PRODUCTION = 16;
+    private static final int EXPIRY = 20;
+    private static final int MIN_TEMPERATURE = 24;
+    private static final int MAX_TEMPERATURE = 28;
+    private static final int PRICE = 32;
+    private static final int NEXT = 36;
+    private static final int PREVIOUS = 40;
+    private static final int RECORD_SIZE = 44;
+
+    // Index slot layout (byte offsets)
+    private static final int SLOT_NAME = 0;
+    private static final int SLOT_HEAD = 4;
+    private static final int SLOT_CATALOGUE = 8;
+    private static final int SLOT_NEXT_OF_NAME = 16;
+    private static final int SLOT_SIZE = 24;
+
+    // Name id of an empty index slot and of a free record, and the end of a list of records
+    private static final int NONE = -1;
+
+    private static final int MAX_RECORDS = Integer.MAX_VALUE / RECORD_SIZE;
+    private static final int MAX_SLOTS = 1 << 26;
+
+    private ByteBuffer _records;
+    // Number of records that were ever used (free records are below it)
+    private int _usedRecords;
+    // First free record, free records are linked by their next record
+    private int _freeRecord;
+    private int _noOfItems;
+
+    private ByteBuffer _index;
+    private int _noOfSlots;
+    private int _usedSlots;
+
+    // Name id -> first index slot of the items with that name (by catalogue number)
+    private ByteBuffer _nameHeads;
+
+    // Dictionary of the names: name id -> name, and name -> name id
+    private ArrayList<String> _names;
+    private HashMap<String, Integer> _nameIds;
+
+    /**
+     * Default Constructor
+     * Creates a new empty OffHeapStock object
+     */
+    public OffHeapStock() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty OffHeapStock object with room for a number of items before the memory has to grow.
+     *
+     * @param initialCapacity the expected number of items (at least 1)
+     * @throws IllegalArgumentException if initialCapacity is not positive or too large
+     */
+    public OffHeapStock(int initialCapacity) {
+        if (initialCapacity < 1 || initialCapacity > MAX_RECORDS) {
+            throw new IllegalArgumentException("invalid capacity: " + initialCapacity);
+        }
+
+        _records = ByteBuffer.allocateDirect(initialCapacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+        _usedRecords = 0;
+        _freeRecord = NONE;
+        _noOfItems = 0;
+
+        // At least twice the expected number of items, so the table stays at most half full
+        _noOfSlots = Math.min(Integer.highestOneBit(Math.max(initialCapacity, 8) - 1) << 2, MAX_SLOTS);
+        _index = newIndex(_noOfSlots);
+        _usedSlots = 0;
+        _nameHeads = ByteBuffer.allocateDirect(8 * Integer.BYTES).order(ByteOrder.nativeOrder());
+
+        _names = new ArrayList<String>();
+        _nameIds = new HashMap<String, Integer>();
+    }
+
+    /**
+     * @return the number of products currently in stock
+     */
+    public int getNumOfItems() {
+        return _noOfItems;
+    }
+
+    /**
+     * Inserts a new food item into the stock, if identical item is existing, it adds to it's quantity.
+     * Otherwise, it adds the new item before the similar items (same name and catalogue number).
+     *
+     * @param newItem is a FoodItem object to be inserted into the stock.
+     * @return true if newItem was successfully inserted into the stock, false if the stock is full.
+     */
+    public boolean addItem(FoodItem newItem) {
+        int nameId = nameIdOf(newItem.getName());
+        long catalogueNumber = newItem.getCatalogueNumber();
+        int slot = findSlot(nameId, catalogueNumber);
+
+        if (slot != NONE) {
+            for (int record = head(slot); record != NONE; record = _records.getInt(offset(record) + NEXT)) {
+                if (isIdentical(record, newItem)) { // Identical item found -> increase item Quantity
+                    int quantity = _records.getInt(offset(record) + QUANTITY) + newItem.getQuantity();
+                    // Like FoodItem.setQuantity, a sum that is not a valid quantity leaves the quantity unchanged
+                    if (quantity >= 0) {
+                        _records.putInt(offset(record) + QUANTITY, quantity);
+                    }
+                    return true;
+                }
+            }
+        }
+
+        if (slot == NONE) {
+            slot = addSlot(nameId, catalogueNumber);
+        }
+        int record = slot == NONE ? NONE : allocateRecord();
+        if (record == NONE) {
+            return false;
+        }
+
+        //insert before first similar
+        int position = offset(record);
+        int oldHead = head(slot);
+        _records.putLong(position + CATALOGUE, catalogueNumber)
+                .putInt(position + NAME, nameId)
+                .putInt(position + QUANTITY, newItem.getQuantity())
+                .putInt(position + PRODUCTION, newItem.getProductionEpochDay())
+                .putInt(position + EXPIRY, newItem.getExpiryEpochDay())
+                .putInt(position + MIN_TEMPERATURE, newItem.getMinTemperature())
+                .putInt(position + MAX_TEMPERATURE, newItem.getMaxTemperature())
+                .putInt(position + PRICE, newItem.getPrice())
+                .putInt(position + NEXT, oldHead)
+                .putInt(position + PREVIOUS, NONE);
+        if (oldHead != NONE) {
+            _records.putInt(offset(oldHead) + PREVIOUS, record);
+        }
+        _index.putInt(slot * SLOT_SIZE + SLOT_HEAD, record);
+        _noOfItems++;
+        return true;
+    }
+
+    /**
+     * Updates the stock and remove items that were sold given by the itemList.
+     * Each sold item is taken from the first item in stock with the same name, items that reach zero quantity are removed.
+     * <p>
+     * The sales of each name are counted first and then taken from the items with that name in stock order
+     * (by catalogue number, newest batch first), which gives the same result as selling them one by one.
+     *
+     * @param itemsList is a list of Strings representing items that were sold
+     */
+    public void updateStock(String[] itemsList) {
+        // Name id -> number of sales
+        HashMap<Integer, Integer> sales = new HashMap<Integer, Integer>();
+        for (int i = 0; i < itemsList.length; i++) {
+            Integer nameId = _nameIds.get(itemsList[i]);
+            if (nameId != null) {
+                sales.merge(nameId, 1, Integer::sum);
+            }
+        }
+        if (sales.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<Integer, Integer> sale : sales.entrySet()) {
+            int remaining = sale.getValue();
+            for (int slot = nameHead(sale.getKey()); slot != NONE && remaining > 0; slot = nextOfName(slot)) {
+                remaining = sell(slot, remaining);
+            }
+        }
+    }
+
+    /**
+     * Takes sales from the batches of an item, newest batch first.
+     * A batch with quantity q takes up to q sales and is removed when it reaches zero,
+     * a batch with quantity 0 takes one sale and is removed (like selling one by one in Stock).
+     *
+     * @param slot  the index slot of the item
+     * @param sales the number of sales left for the name of the item
+     * @return the number of sales left after this item
+     */
+    private int sell(int slot, int sales) {
+        int record = head(slot);
+
+        while (record != NONE && sales > 0) {
+            int position = offset(record);
+            int next = _records.getInt(position + NEXT);
+            int quantity = _records.getInt(position + QUANTITY);
+
+            int sold = quantity == 0 ? 1 : Math.min(quantity, sales);
+            sales -= sold;
+            if (quantity == 0 || sold == quantity) {
+                removeRecord(slot, record);
+            } else {
+                _records.putInt(position + QUANTITY, quantity - sold);
+            }
+            record = next;
+        }
+        return sales;
+    }
+
+    /**
+     * Remove food items from stock that have expiry date before the Date parameter.
+     *
+     * @param d is the date object to be compared with the expiry dates.
+     */
+    public void removeAfterDate(Date d) {
+        int day = d.toEpochDay();
+
+        for (int record = 0; record < _usedRecords; record++) {
+            int position = offset(record);
+            int nameId = _records.getInt(position + NAME);
+            if (nameId != NONE && _records.getInt(position + EXPIRY) < day) {
+                removeRecord(findSlot(nameId, _records.getLong(position + CATALOGUE)), record);
+            }
+        }
+    }
+
+    /**
+     * Counts items in the stock if the parameter temp (a refrigerator temperature) is between the respective item min/max temperatures.
+     *
+     * @param temp is the temperature in another refrigerator.
+     * @return number of amount that can be moved to another refrigerator.
+     */
+    public int howMany(int temp) {
+        int itemsToMove = 0;
+
+        for (int record = 0; record < _usedRecords; record++) {
+            int position = offset(record);
+            if (_records.getInt(position + NAME) != NONE && _records.getInt(position + MIN_TEMPERATURE) <= temp
+                    && _records.getInt(position + MAX_TEMPERATURE) >= temp) {
+                itemsToMove += _records.getInt(position + QUANTITY);
+            }
+        }
+        return itemsToMove;
+    }
+
+    /**
+     * Counts the total quantity of the items in the stock.
+     *
+     * @return the total number of quantities in stock.
+     */
+    public int howManyPieces() {
+        int counter = 0;
+
+        for (int record = 0; record < _usedRecords; record++) {
+            int position = offset(record);
+            if (_records.getInt(position + NAME) != NONE) {
+                counter += _records.getInt(position + QUANTITY);
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Checks if a record holds an item identical to a food item (excluding the quantity values, like FoodItem.equals).
+     * The name and catalogue number of the record are already known to be the same.
+     */
+    private boolean isIdentical(int record, FoodItem item) {
+        int position = offset(record);
+
+        return _records.getInt(position + PRODUCTION) == item.getProductionEpochDay() &&
+                _records.getInt(position + EXPIRY) == item.getExpiryEpochDay() &&
+                _records.getInt(position + MIN_TEMPERATURE) == item.getMinTemperature() &&
+                _records.getInt(position + MAX_TEMPERATURE) == item.getMaxTemperature() &&
+                _records.getInt(position + PRICE) == item.getPrice();
+    }
+
+    /**
+     * Takes a free record, growing the records buffer if there are none.
+     *
+     * @return the new record, or NONE if the buffer cannot grow any more
+     */
+    private int allocateRecord() {
+        if (_freeRecord != NONE) {
+            int record = _freeRecord;
+            _freeRecord = _records.getInt(offset(record) + NEXT);
+            return record;
+        }
+
+        if (_usedRecords == _records.capacity() / RECORD_SIZE) {
+            if (_usedRecords == MAX_RECORDS) {
+                return NONE;
+            }
+            int capacity = (int) Math.min((long) _usedRecords * 2, MAX_RECORDS);
+            ByteBuffer records = ByteBuffer.allocateDirect(capacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+            _records.clear();
+            records.put(_records);
+            _records = records;
+        }
+        return _usedRecords++;
+    }
+
+    /**
+     * Unlinks a record from its item and adds it to the free records.
+     *
+     * @param slot   the index slot of the item of the record
+     * @param record the record
+     */
+    private void removeRecord(int slot, int record) {
+        int position = offset(record);
+        int next = _records.getInt(position + NEXT);
+        int previous = _records.getInt(position + PREVIOUS);
+
+        if (previous == NONE) {
+            _index.putInt(slot * SLOT_SIZE + SLOT_HEAD, next);
+        } else {
+            _records.putInt(offset(previous) + NEXT, next);
+        }
+        if (next != NONE) {
+            _records.putInt(offset(next) + PREVIOUS, previous);
+        }
+
+        _records.putInt(position + NAME, NONE);
+        _records.putInt(position + NEXT, _freeRecord);
+        _freeRecord = record;
+        _noOfItems--;
+    }
+
+    /**
+     * Finds the index slot of an item (name and catalogue number).
+     * An item keeps its slot after all its batches were removed, with no first record.
+     *
+     * @return the slot, or NONE if the item was never in stock
+     */
+    private int findSlot(int nameId, long catalogueNumber) {
+        int mask = _noOfSlots - 1;
+
+        for (int slot = hash(nameId, catalogueNumber) & mask; ; slot = (slot + 1) & mask) {
+            int slotName = _index.getInt(slot * SLOT_SIZE + SLOT_NAME);
+            if (slotName == NONE) {
+                return NONE;
+            }
+            if (slotName == nameId && _index.getLong(slot * SLOT_SIZE + SLOT_CATALOGUE) == catalogueNumber) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Adds an index slot for a new item (with no records yet), growing the index if it gets half full,
+     * and links it with the other slots of its name by catalogue number.
+     *
+     * @return the new slot, or NONE if the index cannot grow any more
+     */
+    private int addSlot(int nameId, long catalogueNumber) {
+        if ((_usedSlots + 1) * 2 > _noOfSlots) {
+            if (_noOfSlots == MAX_SLOTS) {
+                return NONE;
+            }
+
+            ByteBuffer oldIndex = _index;
+            _noOfSlots *= 2;
+            _index = newIndex(_noOfSlots);
+
+            // Moves the slots of each name in their order, so the links by name stay sorted
+            for (int name = 0; name < _names.size(); name++) {
+                int previous = NONE;
+                int slot = nameHead(name);
+                while (slot != NONE) {
+                    int newSlot = emptySlot(name, oldIndex.getLong(slot * SLOT_SIZE + SLOT_CATALOGUE));
+                    _index.putInt(newSlot * SLOT_SIZE + SLOT_HEAD, oldIndex.getInt(slot * SLOT_SIZE + SLOT_HEAD));
+                    if (previous == NONE) {
+                        _nameHeads.putInt(name * Integer.BYTES, newSlot);
+                    } else {
+                        _index.putInt(previous * SLOT_SIZE + SLOT_NEXT_OF_NAME, newSlot);
+                    }
+                    previous = newSlot;
+                    slot = oldIndex.getInt(slot * SLOT_SIZE + SLOT_NEXT_OF_NAME);
+                }
+            }
+        }
+
+        _usedSlots++;
+        int slot = emptySlot(nameId, catalogueNumber);
+
+        int previous = NONE;
+        int next = nameHead(nameId);
+        while (next != NONE && catalogueNumberOf(next) < catalogueNumber) {
+            previous = next;
+            next = nextOfName(next);
+        }
+        _index.putInt(slot * SLOT_SIZE + SLOT_NEXT_OF_NAME, next);
+        if (previous == NONE) {
+            _nameHeads.putInt(nameId * Integer.BYTES, slot);
+        } else {
+            _index.putInt(previous * SLOT_SIZE + SLOT_NEXT_OF_NAME, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Puts a key in the first empty slot of its probe sequence.
+     *
+     * @return the slot
+     */
+    private int emptySlot(int nameId, long catalogueNumber) {
+        int mask = _noOfSlots - 1;
+        int slot = hash(nameId, catalogueNumber) & mask;
+
+        while (_index.getInt(slot * SLOT_SIZE + SLOT_NAME) != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        _index.putInt(slot * SLOT_SIZE + SLOT_NAME, nameId)
+                .putInt(slot * SLOT_SIZE + SLOT_HEAD, NONE)
+                .putLong(slot * SLOT_SIZE + SLOT_CATALOGUE, catalogueNumber)
+                .putInt(slot * SLOT_SIZE + SLOT_NEXT_OF_NAME, NONE);
+        return slot;
+    }
+
+    /**
+     * Creates an index with all its slots empty.
+     */
+    private static ByteBuffer newIndex(int noOfSlots) {
+        ByteBuffer index = ByteBuffer.allocateDirect(noOfSlots * SLOT_SIZE).order(ByteOrder.nativeOrder());
+
+        for (int slot = 0; slot < noOfSlots; slot++) {
+            index.putInt(slot * SLOT_SIZE + SLOT_NAME, NONE);
+        }
+        return index;
+    }
+
+    /**
+     * @return the hash code of an item key, with the bits mixed so that close catalogue numbers spread over the index
+     */
+    private static int hash(int nameId, long catalogueNumber) {
+        long hash = (catalogueNumber * 31 + nameId) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * @return the first record of the item of a slot, or NONE
+     */
+    private int head(int slot) {
+        return _index.getInt(slot * SLOT_SIZE + SLOT_HEAD);
+    }
+
+    /**
+     * @return the first index slot of the items with a name, or NONE
+     */
+    private int nameHead(int nameId) {
+        return _nameHeads.getInt(nameId * Integer.BYTES);
+    }
+
+    /**
+     * @return the index slot of the next item with the same name as the item of a slot, or NONE
+     */
+    private int nextOfName(int slot) {
+        return _index.getInt(slot * SLOT_SIZE + SLOT_NEXT_OF_NAME);
+    }
+
+    /**
+     * @return the catalogue number of the item of a slot
+     */
+    private long catalogueNumberOf(int slot) {
+        return _index.getLong(slot * SLOT_SIZE + SLOT_CATALOGUE);
+    }
+
+    /**
+     * @return the position of a record in the records buffer
+     */
+    private static int offset(int record) {
+        return record * RECORD_SIZE;
+    }
+
+    /**
+     * Returns the id of a name in the dictionary, adding the name if it is not there.
+     */
+    private int nameIdOf(String name) {
+        Integer nameId = _nameIds.get(name);
+
+        if (nameId == null) {
+            nameId = _names.size();
+            if ((nameId + 1) * Integer.BYTES > _nameHeads.capacity()) {
+                ByteBuffer nameHeads = ByteBuffer.allocateDirect(_nameHeads.capacity() * 2)
+                        .order(ByteOrder.nativeOrder());
+                _nameHeads.clear();
+                nameHeads.put(_nameHeads);
+                _nameHeads = nameHeads;
+            }
+            _nameHeads.putInt(nameId * Integer.BYTES, NONE);
+            _names.add(name);
+            _nameIds.put(name, nameId);
+        }
+        return nameId;
+    }
+}
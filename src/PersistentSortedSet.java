@@ -0,0 +1,359 @@
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents a sorted set that can be shared with its snapshots: a balanced search tree (AVL tree) whose
+ * nodes are changed in place only by the set that created them. A snapshot shares all the nodes of the set, after it
+ * both sets copy a node before they change it (path copying), so a change costs O(log n) whether the set was shared
+ * or not, and the nodes that no set uses any more are reclaimed by the garbage collector.
+ * <p>
+ * Elements are compared with the comparator of the set, an element that is equal to an element of the set replaces
+ * it. The elements themselves are not copied.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+class PersistentSortedSet<E> implements Iterable<E> {
+
+    private final Comparator<? super E> _comparator;
+    private Node<E> _root;
+    private int _size;
+    // The nodes created by this set since its last snapshot, the other nodes are shared and must not be changed
+    private Object _owner;
+
+    /**
+     * A node of the tree.
+     */
+    private static class Node<E> {
+        private final Object _owner;
+        private E _element;
+        private Node<E> _left;
+        private Node<E> _right;
+        private int _height;
+
+        private Node(E element, Object owner) {
+            _owner = owner;
+            _element = element;
+            _height = 1;
+        }
+
+        private Node(Node<E> other, Object owner) {
+            _owner = owner;
+            _element = other._element;
+            _left = other._left;
+            _right = other._right;
+            _height = other._height;
+        }
+    }
+
+    /**
+     * Creates a new empty PersistentSortedSet object
+     *
+     * @param comparator the order of the elements
+     */
+    PersistentSortedSet(Comparator<? super E> comparator) {
+        _comparator = comparator;
+        _root = null;
+        _size = 0;
+        _owner = new Object();
+    }
+
+    /**
+     * Takes a snapshot of the set in O(1): the snapshot shares the nodes of this set, and neither of them changes
+     * the shared nodes afterwards.
+     *
+     * @return a set with the elements of this set at the time of the call
+     */
+    PersistentSortedSet<E> snapshot() {
+        PersistentSortedSet<E> snapshot = new PersistentSortedSet<E>(_comparator);
+
+        snapshot._root = _root;
+        snapshot._size = _size;
+        _owner = new Object();
+        return snapshot;
+    }
+
+    /**
+     * @return the number of elements in the set
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * @return true if the set has no elements
+     */
+    boolean isEmpty() {
+        return _root == null;
+    }
+
+    /**
+     * @param probe an element equal to the element to find
+     * @return the element of the set that is equal to probe, or null
+     */
+    E get(E probe) {
+        Node<E> node = _root;
+
+        while (node != null) {
+            int comparison = _comparator.compare(probe, node._element);
+            if (comparison == 0) {
+                return node._element;
+            }
+            node = comparison < 0 ? node._left : node._right;
+        }
+        return null;
+    }
+
+    /**
+     * @param probe the element to compare with
+     * @return the lowest element that is greater than or equal to probe, or null
+     */
+    E ceiling(E probe) {
+        return next(probe, true);
+    }
+
+    /**
+     * @param probe the element to compare with
+     * @return the lowest element that is greater than probe, or null
+     */
+    E higher(E probe) {
+        return next(probe, false);
+    }
+
+    /**
+     * @return the lowest element, or null if the set is empty
+     */
+    E first() {
+        if (_root == null) {
+            return null;
+        }
+        return lowest(_root)._element;
+    }
+
+    /**
+     * @return the highest element, or null if the set is empty
+     */
+    E last() {
+        Node<E> node = _root;
+
+        if (node == null) {
+            return null;
+        }
+        while (node._right != null) {
+            node = node._right;
+        }
+        return node._element;
+    }
+
+    /**
+     * Adds an element to the set, or replaces the element that is equal to it.
+     *
+     * @param element the element
+     */
+    void put(E element) {
+        _root = put(_root, element);
+    }
+
+    /**
+     * Removes the element that is equal to probe, if there is one.
+     *
+     * @param probe an element equal to the element to remove
+     */
+    void remove(E probe) {
+        _root = remove(_root, probe);
+    }
+
+    /**
+     * @return an iterator over the elements in order. The set must not be changed while it is used.
+     */
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final ArrayDeque<Node<E>> _path = pathTo(_root);
+
+            public boolean hasNext() {
+                return !_path.isEmpty();
+            }
+
+            public E next() {
+                if (_path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<E> node = _path.pop();
+                for (Node<E> left = node._right; left != null; left = left._left) {
+                    _path.push(left);
+                }
+                return node._element;
+            }
+        };
+    }
+
+    /**
+     * @return the nodes from node down to its lowest node, the lowest one on top
+     */
+    private static <E> ArrayDeque<Node<E>> pathTo(Node<E> node) {
+        ArrayDeque<Node<E>> path = new ArrayDeque<Node<E>>();
+
+        for (; node != null; node = node._left) {
+            path.push(node);
+        }
+        return path;
+    }
+
+    /**
+     * @return the lowest element greater than probe (or equal, if inclusive), or null
+     */
+    private E next(E probe, boolean inclusive) {
+        Node<E> node = _root;
+        E next = null;
+
+        while (node != null) {
+            int comparison = _comparator.compare(probe, node._element);
+            if (comparison == 0 && inclusive) {
+                return node._element;
+            }
+            if (comparison < 0) {
+                next = node._element;
+                node = node._left;
+            } else {
+                node = node._right;
+            }
+        }
+        return next;
+    }
+
+    private Node<E> put(Node<E> node, E element) {
+        if (node == null) {
+            _size++;
+            return new Node<E>(element, _owner);
+        }
+
+        int comparison = _comparator.compare(element, node._element);
+        node = editable(node);
+        if (comparison < 0) {
+            node._left = put(node._left, element);
+        } else if (comparison > 0) {
+            node._right = put(node._right, element);
+        } else {
+            node._element = element;
+            return node;
+        }
+        return balance(node);
+    }
+
+    /**
+     * Removes the element equal to probe from a subtree. If the subtree does not have it, no node is copied.
+     */
+    private Node<E> remove(Node<E> node, E probe) {
+        if (node == null) {
+            return null;
+        }
+
+        int comparison = _comparator.compare(probe, node._element);
+
+        if (comparison == 0) {
+            _size--;
+            if (node._left == null) {
+                return node._right;
+            }
+            if (node._right == null) {
+                return node._left;
+            }
+            // The lowest element of the right subtree takes the place of the removed element
+            node = editable(node);
+            node._element = lowest(node._right)._element;
+            node._right = removeLowest(node._right);
+            return balance(node);
+        }
+
+        int size = _size;
+        Node<E> child = remove(comparison < 0 ? node._left : node._right, probe);
+        if (_size == size) {
+            return node;
+        }
+
+        node = editable(node);
+        if (comparison < 0) {
+            node._left = child;
+        } else {
+            node._right = child;
+        }
+        return balance(node);
+    }
+
+    private Node<E> removeLowest(Node<E> node) {
+        if (node._left == null) {
+            return node._right;
+        }
+        node = editable(node);
+        node._left = removeLowest(node._left);
+        return balance(node);
+    }
+
+    private static <E> Node<E> lowest(Node<E> node) {
+        while (node._left != null) {
+            node = node._left;
+        }
+        return node;
+    }
+
+    /**
+     * @return the node itself if this set created it since its last snapshot, otherwise a copy of it owned by this set
+     */
+    private Node<E> editable(Node<E> node) {
+        return node._owner == _owner ? node : new Node<E>(node, _owner);
+    }
+
+    /**
+     * Restores the balance of an editable node whose subtrees differ in height by at most 2.
+     *
+     * @return the root of the balanced subtree
+     */
+    private Node<E> balance(Node<E> node) {
+        int balance = height(node._left) - height(node._right);
+
+        if (balance > 1) {
+            if (height(node._left._left) < height(node._left._right)) {
+                node._left = rotateLeft(editable(node._left));
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node._right._right) < height(node._right._left)) {
+                node._right = rotateRight(editable(node._right));
+            }
+            return rotateLeft(node);
+        }
+        updateHeight(node);
+        return node;
+    }
+
+    private Node<E> rotateRight(Node<E> node) {
+        Node<E> left = editable(node._left);
+
+        node._left = left._right;
+        updateHeight(node);
+        left._right = node;
+        updateHeight(left);
+        return left;
+    }
+
+    private Node<E> rotateLeft(Node<E> node) {
+        Node<E> right = editable(node._right);
+
+        node._right = right._left;
+        updateHeight(node);
+        right._left = node;
+        updateHeight(right);
+        return right;
+    }
+
+    private static void updateHeight(Node<?> node) {
+        node._height = Math.max(height(node._left), height(node._right)) + 1;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node._height;
+    }
+}
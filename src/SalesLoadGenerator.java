@@ -0,0 +1,150 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class measures a SalesServer on the local machine: it starts a server with a generated stock, connects
+ * several registers that each send sales and wait for their answers, and prints the 50th and 99th percentile of
+ * the time from sending a sale until it was acknowledged.
+ * <p>
+ * Usage: java SalesLoadGenerator [registers] [sales per register] [items per sale]
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class SalesLoadGenerator {
+
+    private static final int DEFAULT_REGISTERS = 50;
+    private static final int DEFAULT_SALES = 2000;
+    private static final int DEFAULT_ITEMS_PER_SALE = 5;
+
+    private static final int NO_OF_NAMES = 100;
+    private static final int NO_OF_CATALOGUE_NUMBERS = 20;
+    private static final int QUANTITY = 1000000;
+
+    private SalesLoadGenerator() {
+    }
+
+    /**
+     * Runs the measurement and prints the results.
+     *
+     * @param args optional number of registers, sales per register and items per sale
+     * @throws Exception if the server or a register fails
+     */
+    public static void main(String[] args) throws Exception {
+        int registers = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REGISTERS;
+        int sales = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SALES;
+        int itemsPerSale = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ITEMS_PER_SALE;
+
+        Stock stock = new Stock();
+        for (int name = 0; name < NO_OF_NAMES; name++) {
+            for (int catalogueNumber = 0; catalogueNumber < NO_OF_CATALOGUE_NUMBERS; catalogueNumber++) {
+                stock.addItem(new FoodItem("item" + name, 1000 + catalogueNumber, QUANTITY,
+                        Date.of(1, 1, 2020), Date.of(1, 1, 2021), 0, 10, 10));
+            }
+        }
+        int piecesBefore = stock.howManyPieces();
+
+        // Latencies in nanoseconds, one array per register
+        long[][] latencies = new long[registers][sales];
+        Throwable[] failures = new Throwable[registers];
+        long startTime;
+        long endTime;
+
+        try (SalesServer server = new SalesServer(stock, 0)) {
+            Thread[] threads = new Thread[registers];
+            for (int i = 0; i < registers; i++) {
+                int register = i;
+                threads[i] = new Thread(() -> {
+                    try {
+                        runRegister(server.getPort(), new Random(register), sales, itemsPerSale, latencies[register]);
+                    } catch (Throwable e) {
+                        failures[register] = e;
+                    }
+                }, "register-" + i);
+            }
+
+            startTime = System.nanoTime();
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            endTime = System.nanoTime();
+        }
+
+        for (Throwable failure : failures) {
+            if (failure != null) {
+                throw new IllegalStateException("a register failed", failure);
+            }
+        }
+
+        long[] all = new long[registers * sales];
+        for (int i = 0; i < registers; i++) {
+            System.arraycopy(latencies[i], 0, all, i * sales, sales);
+        }
+        Arrays.sort(all);
+
+        long totalSales = (long) registers * sales;
+        System.out.printf("registers: %d, sales: %d, items per sale: %d%n", registers, totalSales, itemsPerSale);
+        System.out.printf("throughput: %.0f sales/s%n", totalSales * 1e9 / (endTime - startTime));
+        System.out.printf("ack latency p50: %.3f ms, p99: %.3f ms%n", percentile(all, 50) / 1e6, percentile(all, 99) / 1e6);
+        System.out.printf("pieces sold: %d%n", piecesBefore - stock.howManyPieces());
+    }
+
+    /**
+     * Sends sales from one register and records the time until each sale was acknowledged.
+     *
+     * @param port         the port of the server
+     * @param random       chooses the sold items
+     * @param sales        the number of sales
+     * @param itemsPerSale the number of items in each sale
+     * @param latencies    filled with the time of each sale in nanoseconds
+     * @throws IOException if the connection fails or the server does not acknowledge a sale
+     */
+    private static void runRegister(int port, Random random, int sales, int itemsPerSale, long[] latencies)
+            throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            socket.setTcpNoDelay(true);
+
+            StringBuilder sale = new StringBuilder();
+            for (int i = 0; i < sales; i++) {
+                sale.setLength(0);
+                for (int item = 0; item < itemsPerSale; item++) {
+                    sale.append("item").append(random.nextInt(NO_OF_NAMES)).append('\n');
+                }
+                sale.append('\n');
+
+                long start = System.nanoTime();
+                out.append(sale);
+                out.flush();
+                String answer = in.readLine();
+                latencies[i] = System.nanoTime() - start;
+
+                if (answer == null || !answer.startsWith("OK")) {
+                    throw new IOException("sale was not acknowledged: " + answer);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param sorted the values in ascending order (not empty)
+     * @param p      the percentile (0-100)
+     * @return the value below which p percent of the values are (nearest rank)
+     */
+    private static long percentile(long[] sorted, int p) {
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+}
@@ -0,0 +1,232 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class receives sales from cash registers over TCP (on the local machine) and applies them to a stock.
+ * <p>
+ * Protocol (UTF-8 lines): a register sends the names of the sold items, one name per line, and an empty line
+ * at the end of each sale. The server answers "OK n" (n is the number of items of the sale) after the sale was
+ * applied to the stock, or "ERROR message" if it could not be applied.
+ * <p>
+ * Each connection is served by its own thread (a virtual thread when the Java version has them). The sales of all
+ * the connections are queued, and a single writer thread takes all the queued sales at once and applies them with
+ * one call to updateStock, so the stock is only used by one thread. The result is the same as applying the sales
+ * one by one in the order they were queued.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class SalesServer implements AutoCloseable {
+
+    // Most sales that are applied with one call to updateStock
+    private static final int MAX_BATCH = 1024;
+
+    private static final String OK = "OK ";
+    private static final String ERROR = "ERROR ";
+
+    // Tells the writer thread to stop
+    private static final Sale STOP = new Sale(new String[0]);
+
+    private final Stock _stock;
+    private final ServerSocket _serverSocket;
+    private final ExecutorService _connections;
+    private final Set<Socket> _sockets;
+    private final LinkedBlockingQueue<Sale> _pending;
+    private final Thread _acceptThread;
+    private final Thread _writerThread;
+    private volatile boolean _closed;
+
+    /**
+     * The items of one sale, completed after they were applied to the stock.
+     */
+    private static class Sale {
+        private final String[] _items;
+        private final CompletableFuture<Void> _applied = new CompletableFuture<Void>();
+
+        private Sale(String[] items) {
+            _items = items;
+        }
+    }
+
+    /**
+     * Starts a server for a stock on a port of the local machine.
+     * The stock must not be used by other threads until the server is closed.
+     *
+     * @param stock the stock that the sales are applied to
+     * @param port  the port to listen on, or 0 for any free port (see getPort)
+     * @throws IOException if the port cannot be opened
+     */
+    public SalesServer(Stock stock, int port) throws IOException {
+        _stock = stock;
+        _serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        _connections = newConnectionExecutor();
+        _sockets = ConcurrentHashMap.newKeySet();
+        _pending = new LinkedBlockingQueue<Sale>();
+
+        _writerThread = new Thread(this::applySales, "sales-writer");
+        _acceptThread = new Thread(this::acceptConnections, "sales-accept");
+        _writerThread.start();
+        _acceptThread.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return _serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops the server: closes the connections, and applies the sales that were already received.
+     */
+    public void close() throws IOException {
+        _closed = true;
+        _serverSocket.close();
+
+        try {
+            _acceptThread.join();
+
+            // A connection that waits for its sale gets the answer from the writer, and then sees its socket closed
+            for (Socket socket : _sockets) {
+                socket.close();
+            }
+            _connections.shutdown();
+            while (!_connections.awaitTermination(1, TimeUnit.SECONDS)) {
+                for (Socket socket : _sockets) {
+                    socket.close();
+                }
+            }
+
+            _pending.add(STOP);
+            _writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    private void acceptConnections() {
+        while (!_closed) {
+            try {
+                Socket socket = _serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                _sockets.add(socket);
+                _connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // The server socket was closed (or the connection failed before it was accepted)
+            }
+        }
+    }
+
+    /**
+     * Reads the sales of one connection and answers each sale after it was applied.
+     *
+     * @param socket the connection
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+
+            ArrayList<String> items = new ArrayList<String>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    items.add(line);
+                    continue;
+                }
+
+                // End of a sale
+                Sale sale = new Sale(items.toArray(new String[0]));
+                items.clear();
+                _pending.add(sale);
+                try {
+                    sale._applied.get();
+                    out.write(OK + sale._items.length + "\n");
+                } catch (ExecutionException e) {
+                    out.write(ERROR + e.getCause() + "\n");
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The register disconnected, a sale it did not finish is dropped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            _sockets.remove(socket);
+        }
+    }
+
+    /**
+     * The writer thread: applies the queued sales in batches until the server is closed.
+     */
+    private void applySales() {
+        ArrayList<Sale> batch = new ArrayList<Sale>();
+        boolean stop = false;
+
+        while (!stop) {
+            try {
+                batch.add(_pending.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            _pending.drainTo(batch, MAX_BATCH - 1);
+
+            int noOfItems = 0;
+            for (Sale sale : batch) {
+                noOfItems += sale._items.length;
+            }
+            String[] items = new String[noOfItems];
+            noOfItems = 0;
+            for (Sale sale : batch) {
+                System.arraycopy(sale._items, 0, items, noOfItems, sale._items.length);
+                noOfItems += sale._items.length;
+                stop |= sale == STOP;
+            }
+
+            try {
+                _stock.updateStock(items);
+                for (Sale sale : batch) {
+                    sale._applied.complete(null);
+                }
+            } catch (RuntimeException e) {
+                for (Sale sale : batch) {
+                    sale._applied.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Creates the executor of the connections: a virtual thread per connection when the Java version has them
+     * (Java 21), otherwise a cached pool of platform threads.
+     *
+     * @return the executor
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,463 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class represents an inventory that is split between several Stock objects (shards) by catalogue number ranges.
+ * <p>
+ * Shard i holds the items with catalogue numbers from split point i - 1 (inclusive) to split point i (exclusive).
+ * Each shard is used only by its own thread, so the shards work in parallel: queries are sent to all the shards
+ * and their results are combined in catalogue number order, which gives the same results as one Stock with all
+ * the items. The split points can be moved (rebalance) while the inventory is in use.
+ * <p>
+ * The methods can be called from several threads. Lists of sales that are given at the same time are applied
+ * in any order between them.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class ShardedStock implements AutoCloseable {
+
+    private static final long MIN_CATALOGUE_NUMBER = 1000;
+    private static final long MAX_CATALOGUE_NUMBER = 9999;
+
+    private final Stock[] _shards;
+    private final ExecutorService[] _executors;
+    // _splitPoints[i] is the lowest catalogue number of shard i + 1
+    private long[] _splitPoints;
+
+    // Queries and changes share the lock, rebalance takes it alone
+    private final ReentrantReadWriteLock _lock;
+
+    /**
+     * The part of the order list of one shard, see order.
+     */
+    private static class ShardOrder {
+        private final String _list;
+        // True if the list ends with the last group of items of the shard
+        private final boolean _ordersLastGroup;
+        private final boolean _empty;
+
+        /**
+         * Takes the order list of a shard, must be called on the thread of the shard.
+         */
+        private ShardOrder(Stock shard, int amount) {
+            _list = shard.order(amount);
+            _ordersLastGroup = shard.ordersLastGroup(amount);
+            _empty = shard.getNumOfItems() == 0;
+        }
+    }
+
+    /**
+     * Creates an empty inventory with shards of about the same catalogue number range.
+     *
+     * @param noOfShards the number of shards (at least 1)
+     * @throws IllegalArgumentException if noOfShards is not positive
+     */
+    public ShardedStock(int noOfShards) {
+        this(evenSplitPoints(noOfShards));
+    }
+
+    /**
+     * Creates an empty inventory with the given split points between the shards.
+     *
+     * @param splitPoints the lowest catalogue number of each shard except the first, in increasing order
+     * @throws IllegalArgumentException if the split points are not in increasing order
+     */
+    public ShardedStock(long[] splitPoints) {
+        checkSplitPoints(splitPoints);
+
+        _splitPoints = splitPoints.clone();
+        _shards = new Stock[splitPoints.length + 1];
+        _executors = new ExecutorService[_shards.length];
+        for (int i = 0; i < _shards.length; i++) {
+            _shards[i] = new Stock();
+            _executors[i] = Executors.newSingleThreadExecutor();
+        }
+        _lock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int getNumOfShards() {
+        return _shards.length;
+    }
+
+    /**
+     * @return a copy of the split points between the shards
+     */
+    public long[] getSplitPoints() {
+        _lock.readLock().lock();
+        try {
+            return _splitPoints.clone();
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts a new food item into the shard of its catalogue number, see Stock.addItem.
+     *
+     * @param newItem is a FoodItem object to be inserted into the stock.
+     * @return true if newItem was successfully inserted into the stock, false otherwise.
+     */
+    public boolean addItem(FoodItem newItem) {
+        // A copy, so the caller can change newItem while the shard is adding it
+        FoodItem item = new FoodItem(newItem);
+
+        _lock.readLock().lock();
+        try {
+            int shard = shardOf(item.getCatalogueNumber());
+            return await(_executors[shard].submit(() -> _shards[shard].addItem(item)));
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the stock and remove items that were sold given by the itemList, see Stock.updateStock.
+     * The sales of each name are given to the shards in catalogue number order, each shard passes the sales it could
+     * not take (all its items with the name were sold out) to the next shard.
+     *
+     * @param itemsList is a list of Strings representing items that were sold
+     */
+    public void updateStock(String[] itemsList) {
+        // Name -> number of sales
+        LinkedHashMap<String, Integer> sales = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < itemsList.length; i++) {
+            sales.merge(itemsList[i], 1, Integer::sum);
+        }
+
+        _lock.readLock().lock();
+        try {
+            for (int i = 0; i < _shards.length && !sales.isEmpty(); i++) {
+                Stock shard = _shards[i];
+                LinkedHashMap<String, Integer> shardSales = sales;
+                sales = await(_executors[i].submit(() -> {
+                    LinkedHashMap<String, Integer> remaining = new LinkedHashMap<String, Integer>();
+                    for (Map.Entry<String, Integer> sale : shardSales.entrySet()) {
+                        int left = shard.sell(sale.getKey(), sale.getValue());
+                        if (left > 0) {
+                            remaining.put(sale.getKey(), left);
+                        }
+                    }
+                    return remaining;
+                }));
+            }
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove food items from all the shards that have expiry date before the Date parameter.
+     *
+     * @param d is the date object to be compared with the expiry dates.
+     */
+    public void removeAfterDate(Date d) {
+        _lock.readLock().lock();
+        try {
+            ArrayList<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < _shards.length; i++) {
+                Stock shard = _shards[i];
+                results.add(_executors[i].submit(() -> {
+                    shard.removeAfterDate(d);
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                await(result);
+            }
+        } finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of products currently in all the shards
+     */
+    public int getNumOfItems() {
+        int noOfItems = 0;
+
+        _lock.readLock().lock();
+        try {
+            ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < _shards.length; i++) {
+                Stock shard = _shards[i];
+                results.add(_executors[i].submit(() -> shard.getNumOfItems()));
+            }
+            for (Future<Integer> result : results) {
+                noOfItems += await(result);
+            }
+        } finally {
+            _lock.readLock().unlock();
+        }
+        return noOfItems;
+    }
+
+    /**
+     * Counts the total quantity of the items in all the shards.
+     *
+     * @return the total number of quantities in stock.
+     */
+    public int howManyPieces() {
+        int counter = 0;
+
+        _lock.readLock().lock();
+        try {
+            ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < _shards.length; i++) {
+                Stock shard = _shards[i];
+                results.add(_executors[i].submit(() -> shard.howManyPieces()));
+            }
+            for (Future<Integer> result : results) {
+                counter += await(result);
+            }
+        } finally {
+            _lock.readLock().unlock();
+        }
+        return counter;
+    }
+
+    /**
+     * Counts items in all the shards if the parameter temp (a refrigerator temperature) is between the respective item min/max temperatures.
+     *
+     * @param temp is the temperature in another refrigerator.
+     * @return number of amount that can be moved to another refrigerator.
+     */
+    public int howMany(int temp) {
+        int itemsToMove = 0;
+
+        _lock.readLock().lock();
+        try {
+            ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < _shards.length; i++) {
+                Stock shard = _shards[i];
+                results.add(_executors[i].submit(() -> shard.howMany(temp)));
+            }
+            for (Future<Integer> result : results) {
+                itemsToMove += await(result);
+            }
+        } finally {
+            _lock.readLock().unlock();
+        }
+        return itemsToMove;
+    }
+
+    /**
+     * Creates a list of items to order from all the shards, the same list as Stock.order for all the items.
+     *
+     * @param amount is the max number that if an item quantity passes, is not adjoined to the list.
+     * @return a list of items to order
+     */
+    public String order(int amount) {
+        StringBuilder items = new StringBuilder();
+
+        _lock.readLock().lock();
+        try {
+            // One task for each shard, so its list, last group and size are taken between the same two sales
+            ArrayList<Future<ShardOrder>> orders = new ArrayList<Future<ShardOrder>>();
+            for (int i = 0; i < _shards.length; i++) {
+                Stock shard = _shards[i];
+                orders.add(_executors[i].submit(() -> new ShardOrder(shard, amount)));
+            }
+
+            boolean needsSeparator = false;
+            for (Future<ShardOrder> result : orders) {
+                ShardOrder order = await(result);
+                if (order._empty) {
+                    continue;
+                }
+                // The last group of the previous shard is not the last item of the whole stock
+                if (needsSeparator) {
+                    items.append(", ");
+                }
+                items.append(order._list);
+                needsSeparator = order._ordersLastGroup;
+            }
+        } finally {
+            _lock.readLock().unlock();
+        }
+        return items.toString();
+    }
+
+    /**
+     * Moves the split points so that the shards hold about the same number of items.
+     * Items with the same catalogue number always stay in one shard.
+     */
+    public void rebalance() {
+        _lock.writeLock().lock();
+        try {
+            ArrayList<FoodItem> items = collectItems();
+            long[] splitPoints = new long[_splitPoints.length];
+
+            int shard = 0;
+            for (int i = 0; i < items.size() && shard < splitPoints.length; i++) {
+                long catalogueNumber = items.get(i).getCatalogueNumber();
+                // Split at the first catalogue number after the (shard + 1)-th share of the items
+                if ((long) i * _shards.length >= (long) (shard + 1) * items.size()
+                        && catalogueNumber != items.get(i - 1).getCatalogueNumber()) {
+                    splitPoints[shard++] = catalogueNumber;
+                }
+            }
+            // Shards that got no items get empty ranges at the end
+            for (; shard < splitPoints.length; shard++) {
+                splitPoints[shard] = shard == 0 ? MAX_CATALOGUE_NUMBER + 1
+                        : Math.max(splitPoints[shard - 1] + 1, MAX_CATALOGUE_NUMBER + 1);
+            }
+
+            moveItems(items, splitPoints);
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the split points between the shards, moving the items to their new shards.
+     *
+     * @param splitPoints the lowest catalogue number of each shard except the first, in increasing order
+     * @throws IllegalArgumentException if the number of split points does not match the number of shards,
+     *                                  or they are not in increasing order
+     */
+    public void rebalance(long[] splitPoints) {
+        if (splitPoints.length != _shards.length - 1) {
+            throw new IllegalArgumentException("expected " + (_shards.length - 1) + " split points");
+        }
+        checkSplitPoints(splitPoints);
+
+        _lock.writeLock().lock();
+        try {
+            moveItems(collectItems(), splitPoints.clone());
+        } finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stops the threads of the shards. The inventory cannot be used afterwards.
+     */
+    public void close() {
+        for (ExecutorService executor : _executors) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Collects the items of all the shards in stock order (the shards must not be changed by other threads).
+     *
+     * @return the stored items of all the shards
+     */
+    private ArrayList<FoodItem> collectItems() {
+        ArrayList<Future<ArrayList<FoodItem>>> results = new ArrayList<Future<ArrayList<FoodItem>>>();
+        for (int i = 0; i < _shards.length; i++) {
+            Stock shard = _shards[i];
+            results.add(_executors[i].submit(() -> {
+                ArrayList<FoodItem> items = new ArrayList<FoodItem>(shard.getNumOfItems());
+                for (Iterator<FoodItem> iterator = shard.items(); iterator.hasNext(); ) {
+                    items.add(iterator.next());
+                }
+                return items;
+            }));
+        }
+
+        ArrayList<FoodItem> items = new ArrayList<FoodItem>();
+        for (Future<ArrayList<FoodItem>> result : results) {
+            items.addAll(await(result));
+        }
+        return items;
+    }
+
+    /**
+     * Builds new shards from items in stock order and new split points.
+     * The items are appended in stock order, so the order of the items does not change.
+     *
+     * @param items       the items of all the shards, in stock order
+     * @param splitPoints the new split points
+     */
+    private void moveItems(ArrayList<FoodItem> items, long[] splitPoints) {
+        _splitPoints = splitPoints;
+
+        // The old shards are idle (collectItems waited for them), and tasks submitted later see the new shards
+        for (int i = 0; i < _shards.length; i++) {
+            _shards[i] = new Stock();
+        }
+        for (FoodItem item : items) {
+            _shards[shardOf(item.getCatalogueNumber())].appendItem(item);
+        }
+    }
+
+    /**
+     * @return the index of the shard of a catalogue number
+     */
+    private int shardOf(long catalogueNumber) {
+        int index = Arrays.binarySearch(_splitPoints, catalogueNumber);
+
+        // A split point is the first catalogue number of the next shard
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Waits for the result of a task of a shard.
+     *
+     * @param result the result of the task
+     * @return the value of the task
+     * @throws RuntimeException the exception of the task, or IllegalStateException if the waiting was interrupted
+     */
+    private static <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Checks that split points are in increasing order.
+     *
+     * @throws IllegalArgumentException if they are not
+     */
+    private static void checkSplitPoints(long[] splitPoints) {
+        for (int i = 1; i < splitPoints.length; i++) {
+            if (splitPoints[i] <= splitPoints[i - 1]) {
+                throw new IllegalArgumentException("split points must be increasing: " + Arrays.toString(splitPoints));
+            }
+        }
+    }
+
+    /**
+     * Splits the catalogue numbers into ranges of about the same size.
+     *
+     * @param noOfShards the number of ranges
+     * @return the split points between the ranges
+     * @throws IllegalArgumentException if noOfShards is not positive
+     */
+    private static long[] evenSplitPoints(int noOfShards) {
+        if (noOfShards < 1) {
+            throw new IllegalArgumentException("invalid number of shards: " + noOfShards);
+        }
+
+        long[] splitPoints = new long[noOfShards - 1];
+        long range = MAX_CATALOGUE_NUMBER - MIN_CATALOGUE_NUMBER + 1;
+        for (int i = 0; i < splitPoints.length; i++) {
+            splitPoints[i] = MIN_CATALOGUE_NUMBER + range * (i + 1) / noOfShards;
+        }
+        return splitPoints;
+    }
+}
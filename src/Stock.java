@@ -1,16 +1,377 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.TreeMap;
+
 /**
  * This class represents a stock object.
+ * <p>
+ * The groups of items (same name and catalogue number) are kept in persistent search trees (see PersistentSortedSet)
+ * that a snapshot of the stock (see snapshot) shares with the stock. After a snapshot, a change copies only the
+ * changed group of items and the tree nodes on the paths to it, so the snapshot keeps the items as they were and
+ * a change costs O(log n) plus the size of the changed group.
  *
  * @author Noy Segal
  * @version 2020a
  */
 public class Stock {
 
-    private FoodItem[] _stock;
+    // The groups of items in stock order: by catalogue number and then by insertion order
+    private PersistentSortedSet<ItemGroup> _catalogue;
+    // The same groups by name (see BY_NAME) and then by catalogue number
+    private PersistentSortedSet<ItemGroup> _itemsByName;
+    // An entry for each expiry date (days since 1/1/1970) of each group, ordered by the date
+    private PersistentSortedSet<ExpiryEntry> _itemsByExpiry;
+    // Quantities of the items by their storage temperatures
+    private TemperatureIndex _temperatures;
+    // True if the temperature index may be shared with a snapshot, then it must be copied before it is changed
+    private boolean _temperaturesShared;
+    // The groups ordered by their max price (highest first) and then by stock order
+    private PersistentSortedSet<ItemGroup> _groupsByMaxPrice;
+    // Fresh periods of the items, built on the first freshness query and kept up to date from then on (null until then)
+    private FreshnessIndex _freshness;
     private int _noOfItems;
+    // Total quantity of all the items
+    private int _noOfPieces;
+    // Number of groups that were created, gives each group its place among the groups with the same catalogue number
+    private long _noOfGroups;
+    // The groups created by this stock since its last snapshot, the other groups may be shared and are copied
+    // before they are changed
+    private Object _owner;
+
+    // By catalogue number, equal numbers in insertion order
+    private static final Comparator<ItemGroup> IN_STOCK_ORDER = (first, second) -> {
+        if (first._catalogueNumber != second._catalogueNumber) {
+            return Long.compare(first._catalogueNumber, second._catalogueNumber);
+        }
+        return Long.compare(first._sequence, second._sequence);
+    };
+
+    // By name, equal names by catalogue number. Names are compared by their hash codes first (cached by String),
+    // so a lookup rarely reads the characters of the names it passes
+    private static final Comparator<ItemGroup> BY_NAME = (first, second) -> {
+        if (first._name.hashCode() != second._name.hashCode()) {
+            return Integer.compare(first._name.hashCode(), second._name.hashCode());
+        }
+        int comparison = first._name.compareTo(second._name);
+        if (comparison != 0) {
+            return comparison;
+        }
+        return Long.compare(first._catalogueNumber, second._catalogueNumber);
+    };
+
+    // By expiry date, equal dates in the order the groups were created
+    private static final Comparator<ExpiryEntry> BY_EXPIRY = (first, second) -> {
+        if (first._day != second._day) {
+            return Integer.compare(first._day, second._day);
+        }
+        return Long.compare(first._sequence, second._sequence);
+    };
+
+    // Highest max price first, equal prices in stock order
+    private static final Comparator<ItemGroup> BY_MAX_PRICE = (first, second) -> {
+        if (first._maxPrice != second._maxPrice) {
+            return Integer.compare(second._maxPrice, first._maxPrice);
+        }
+        if (first._catalogueNumber != second._catalogueNumber) {
+            return Long.compare(first._catalogueNumber, second._catalogueNumber);
+        }
+        return Long.compare(first._sequence, second._sequence);
+    };
+
+    /**
+     * Holds the batches of items that share the same name and catalogue number, newest batch first.
+     * The batches are linked in stock order, and the batches that expire on the same day are linked to each other too,
+     * so the batches of a day are found and removed without passing over the other batches of the group.
+     * Only the stock that owns the group changes it (and its items), other stocks change a copy.
+     */
+    private static class ItemGroup {
+        private final String _name;
+        private final long _catalogueNumber;
+        private final long _sequence;
+        private final Object _owner;
+        private Batch _first;
+        private Batch _last;
+        private int _noOfBatches;
+        // The sequences of the first and the last batch ever added, the sequences of the batches are in stock order
+        private long _lowestSequence;
+        private long _highestSequence;
+        // Expiry date (days since 1/1/1970) -> the first of the batches that expire on that day
+        private final HashMap<Integer, Batch> _batchesByExpiry;
+        // Price -> number of batches with that price, gives the highest price after a batch is removed
+        private final TreeMap<Integer, Integer> _prices;
+        // Total quantity and highest price of the batches
+        private int _quantity;
+        private int _maxPrice;
+
+        private ItemGroup(String name, long catalogueNumber, long sequence, Object owner) {
+            _name = name;
+            _catalogueNumber = catalogueNumber;
+            _sequence = sequence;
+            _owner = owner;
+            _batchesByExpiry = owner == null ? null : new HashMap<Integer, Batch>();
+            _prices = owner == null ? null : new TreeMap<Integer, Integer>();
+        }
+
+        /**
+         * Copies a group and its items for another owner.
+         */
+        private ItemGroup(ItemGroup other, Object owner) {
+            this(other._name, other._catalogueNumber, other._sequence, owner);
+
+            for (Batch batch = other._first; batch != null; batch = batch._next) {
+                link(new Batch(new FoodItem(batch._item), batch._sequence), false);
+            }
+            _lowestSequence = other._lowestSequence;
+            _highestSequence = other._highestSequence;
+            _quantity = other._quantity;
+            _maxPrice = other._maxPrice;
+        }
+
+        /**
+         * @return a group with no batches, to look up the group with the same name and catalogue number
+         */
+        private static ItemGroup probe(String name, long catalogueNumber) {
+            return new ItemGroup(name, catalogueNumber, 0, null);
+        }
+
+        /**
+         * Adds a batch before or after the other batches. The quantity and the max price are left to the stock.
+         *
+         * @param item  the item of the batch
+         * @param first true to add the batch before the other batches, false to add it after them
+         * @return the new batch
+         */
+        private Batch add(FoodItem item, boolean first) {
+            long sequence = 0;
+
+            if (_first == null) {
+                _lowestSequence = 0;
+                _highestSequence = 0;
+            } else if (first) {
+                sequence = --_lowestSequence;
+            } else {
+                sequence = ++_highestSequence;
+            }
+            return link(new Batch(item, sequence), first);
+        }
+
+        /**
+         * Links a new batch before or after the other batches.
+         *
+         * @param batch the batch
+         * @param first true to link the batch before the other batches, false to link it after them
+         * @return the batch
+         */
+        private Batch link(Batch batch, boolean first) {
+            FoodItem item = batch._item;
+
+            if (_first == null) {
+                _first = batch;
+                _last = batch;
+            } else if (first) {
+                batch._next = _first;
+                _first._previous = batch;
+                _first = batch;
+            } else {
+                batch._previous = _last;
+                _last._next = batch;
+                _last = batch;
+            }
+
+            Batch sameDay = _batchesByExpiry.put(item.getExpiryEpochDay(), batch);
+            if (sameDay != null) {
+                batch._nextOnDay = sameDay;
+                sameDay._previousOnDay = batch;
+            }
+            _prices.merge(item.getPrice(), 1, Integer::sum);
+            _noOfBatches++;
+            return batch;
+        }
+
+        /**
+         * Removes a batch.
+         *
+         * @param batch a batch of the group
+         */
+        private void remove(Batch batch) {
+            unlink(batch);
+            if (batch._previousOnDay != null) {
+                batch._previousOnDay._nextOnDay = batch._nextOnDay;
+            } else if (batch._nextOnDay != null) {
+                _batchesByExpiry.put(batch._item.getExpiryEpochDay(), batch._nextOnDay);
+            } else {
+                _batchesByExpiry.remove(batch._item.getExpiryEpochDay());
+            }
+            if (batch._nextOnDay != null) {
+                batch._nextOnDay._previousOnDay = batch._previousOnDay;
+            }
+        }
+
+        /**
+         * Removes all the batches that expire on a day, in one pass over them.
+         *
+         * @param day an expiry date (days since 1/1/1970)
+         * @return the first of the removed batches, the others follow it through their _nextOnDay links
+         */
+        private Batch removeDay(int day) {
+            Batch removed = _batchesByExpiry.remove(day);
+
+            for (Batch batch = removed; batch != null; batch = batch._nextOnDay) {
+                unlink(batch);
+            }
+            return removed;
+        }
+
+        /**
+         * @param day an expiry date (days since 1/1/1970)
+         * @return true if a batch of the group expires on the day
+         */
+        private boolean expiresOn(int day) {
+            return _batchesByExpiry.containsKey(day);
+        }
+
+        /**
+         * @return the highest price of the batches, in O(log n)
+         */
+        private int highestPrice() {
+            return _prices.lastKey();
+        }
+
+        /**
+         * Takes a batch out of the stock order and out of the price counts, but not out of its day.
+         */
+        private void unlink(Batch batch) {
+            if (batch._previous == null) {
+                _first = batch._next;
+            } else {
+                batch._previous._next = batch._next;
+            }
+            if (batch._next == null) {
+                _last = batch._previous;
+            } else {
+                batch._next._previous = batch._previous;
+            }
+
+            int price = batch._item.getPrice();
+            if (_prices.merge(price, -1, Integer::sum) == 0) {
+                _prices.remove(price);
+            }
+            _noOfBatches--;
+        }
+    }
+
+    /**
+     * A batch of items in a group: the stored item and its place in the group, linked to the batches before and
+     * after it in stock order and to the other batches of the group that expire on the same day.
+     */
+    private static class Batch {
+        private final FoodItem _item;
+        private final long _sequence;
+        private Batch _previous;
+        private Batch _next;
+        private Batch _previousOnDay;
+        private Batch _nextOnDay;
+
+        private Batch(FoodItem item, long sequence) {
+            _item = item;
+            _sequence = sequence;
+        }
+    }
+
+    /**
+     * An expiry date of a group of items: at least one batch of the group expires on that day.
+     * The group is kept by its keys, the stock may replace the group with a copy.
+     */
+    private static class ExpiryEntry {
+        private final int _day;
+        private final String _name;
+        private final long _catalogueNumber;
+        private final long _sequence;
+
+        private ExpiryEntry(int day, ItemGroup group) {
+            _day = day;
+            _name = group._name;
+            _catalogueNumber = group._catalogueNumber;
+            _sequence = group._sequence;
+        }
+    }
+
+    /**
+     * Walks over the batches with a given name in stock order while a list of sold items is processed.
+     * Each group the cursor gets to is made editable (see editableGroup) before its batches are sold.
+     * The cursor passes a batch only when it is sold out, so the sold out batches are the groups it passed and the
+     * batches before the current one in its group, which are removed together by removeSoldOut.
+     */
+    private class SaleCursor {
+        private final String _name;
+        private ItemGroup _group;
+        private Batch _current;
+        // The groups the cursor passed, all their batches are sold out
+        private final ArrayList<ItemGroup> _soldOutGroups;
+
+        private SaleCursor(String name) {
+            _name = name;
+            _soldOutGroups = new ArrayList<ItemGroup>();
+            moveTo(_itemsByName.ceiling(ItemGroup.probe(name, Long.MIN_VALUE)));
+        }
 
-    // Max stock in the supermarket
-    private final int MAX_STOCK = 100;
+        /**
+         * Moves the cursor to the next batch with the same name, or to null if there are no more batches.
+         */
+        private void next() {
+            if (_current._next != null) {
+                _current = _current._next;
+            } else {
+                _soldOutGroups.add(_group);
+                moveTo(_itemsByName.higher(_group));
+            }
+        }
+
+        /**
+         * Moves the cursor to the first batch of a group (groups are never empty), if it has the name of the cursor.
+         */
+        private void moveTo(ItemGroup group) {
+            if (group == null || !group._name.equals(_name)) {
+                _current = null;
+                return;
+            }
+            _group = editableGroup(group);
+            _current = _group._first;
+        }
+    }
+
+    /**
+     * Iterates over the stored items in stock order.
+     */
+    private class ItemIterator implements Iterator<FoodItem> {
+        private final Iterator<ItemGroup> _groups = _catalogue.iterator();
+        private Batch _next;
+
+        public boolean hasNext() {
+            while (_next == null) {
+                if (!_groups.hasNext()) {
+                    return false;
+                }
+                _next = _groups.next()._first;
+            }
+            return true;
+        }
+
+        public FoodItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            FoodItem item = _next._item;
+            _next = _next._next;
+            return item;
+        }
+    }
 
     /**
      * Default Constructor
@@ -18,103 +379,269 @@ public class Stock {
      */
     public Stock() {
 
-        _stock = new FoodItem[MAX_STOCK];
+        _catalogue = new PersistentSortedSet<ItemGroup>(IN_STOCK_ORDER);
+        _itemsByName = new PersistentSortedSet<ItemGroup>(BY_NAME);
+        _itemsByExpiry = new PersistentSortedSet<ExpiryEntry>(BY_EXPIRY);
+        _temperatures = new TemperatureIndex();
+        _temperaturesShared = false;
+        _groupsByMaxPrice = new PersistentSortedSet<ItemGroup>(BY_MAX_PRICE);
+        _freshness = null;
         _noOfItems = 0;
+        _noOfPieces = 0;
+        _noOfGroups = 0;
+        _owner = new Object();
     }
 
     /**
-     * @return the number of products currently in stock
+     * Copy constructor for Stock.
+     * Creates a stock with copies of the items of another stock, in the same order.
+     *
+     * @param other the Stock object to copy
      */
-    public int getNumOfItems() {
+    public Stock(Stock other) {
+        this();
 
-        return _noOfItems;
+        for (Iterator<FoodItem> items = other.items(); items.hasNext(); ) {
+            appendItem(new FoodItem(items.next()));
+        }
     }
 
     /**
-     * Searches the _stock array for similar FoodItem with the same name and catalogue number as newItem.
+     * Takes a snapshot of the stock in O(1): the snapshot shares the data of this stock, and each of them copies the
+     * parts it changes afterwards (see the class comment). The snapshot can be given to another thread (through a safe
+     * hand-off such as a queue) and read there while this stock keeps changing, and old versions are reclaimed by the
+     * garbage collector once no snapshot uses them.
+     * The snapshot must be taken by the thread that changes this stock.
      *
-     * @param newItem is a FoodItem object that is used to check for similar name and catalogue number.
-     * @return index of the first similar item (by name and catalogue number), if not found returns -1.
+     * @return a Stock object with the items of this stock at the time of the call
      */
-    private int indexOfFirstSimilarItem(FoodItem newItem) {
-        int index = 0;
+    public Stock snapshot() {
+        Stock snapshot = new Stock();
+
+        snapshot._catalogue = _catalogue.snapshot();
+        snapshot._itemsByName = _itemsByName.snapshot();
+        snapshot._itemsByExpiry = _itemsByExpiry.snapshot();
+        snapshot._temperatures = _temperatures;
+        snapshot._temperaturesShared = true;
+        _temperaturesShared = true;
+        snapshot._groupsByMaxPrice = _groupsByMaxPrice.snapshot();
+        snapshot._freshness = _freshness == null ? null : _freshness.snapshot();
+        snapshot._noOfItems = _noOfItems;
+        snapshot._noOfPieces = _noOfPieces;
+        snapshot._noOfGroups = _noOfGroups;
+        // The groups of this stock are shared now
+        _owner = new Object();
+        return snapshot;
+    }
 
-        for (int i = 0; i < _noOfItems; i++) {
-            if (newItem.getName().equals(_stock[i].getName()) && newItem.getCatalogueNumber() == _stock[i].getCatalogueNumber()) {
-                return i;
+    /**
+     * Returns a group of items that this stock may change: the group itself if this stock owns it, otherwise a copy of
+     * the group and its items, which replaces the group in the indexes. O(log n) plus the size of the group.
+     *
+     * @param group is a group of items of this stock.
+     * @return the group to change.
+     */
+    private ItemGroup editableGroup(ItemGroup group) {
+        if (group._owner == _owner) {
+            return group;
+        }
+
+        ItemGroup copy = new ItemGroup(group, _owner);
+        // The freshness index holds the shared items, this stock changes the copies from now on so they replace them
+        if (_freshness != null) {
+            for (Batch batch = copy._first; batch != null; batch = batch._next) {
+                _freshness.put(batch._item, copy._sequence, batch._sequence);
             }
         }
-        return -1;
+        _catalogue.put(copy);
+        _itemsByName.put(copy);
+        _groupsByMaxPrice.put(copy);
+        return copy;
     }
 
     /**
-     * Searches the _stock array for identical FoodItem newItem, starting the search from the first similar item.
+     * @return the temperature index, copied first if it is shared with a snapshot.
+     */
+    private TemperatureIndex editableTemperatures() {
+        if (_temperaturesShared) {
+            _temperatures = new TemperatureIndex(_temperatures);
+            _temperaturesShared = false;
+        }
+        return _temperatures;
+    }
+
+    /**
+     * @return the number of products currently in stock
+     */
+    public int getNumOfItems() {
+
+        return _noOfItems;
+    }
+
+    /**
+     * Searches the stock for the group of items with the same name and catalogue number.
+     *
+     * @param name            is the name of the item.
+     * @param catalogueNumber is the catalogue number of the item.
+     * @return the group of similar items (by name and catalogue number), if not found returns null.
+     */
+    private ItemGroup findGroup(String name, long catalogueNumber) {
+        return _itemsByName.get(ItemGroup.probe(name, catalogueNumber));
+    }
+
+    /**
+     * Searches a group of similar items for identical FoodItem newItem, among the batches that expire on its day.
      *
-     * @param newItem    is a FoodItem object that is used to check for completely identical item.
-     * @param startIndex is the index of the first item that has similar name and catalogue number in _stock array.
-     * @return index of identical item (including production/expiry dates) if found in _stock array, otherwise returns -1.
-     */
-    private int indexOfIdenticalItem(FoodItem newItem, int startIndex) {
-        int i = startIndex;
-        while (i < _noOfItems && newItem.getName().equals(_stock[i].getName()) && newItem.getCatalogueNumber() == _stock[i].getCatalogueNumber()) {
-            if (_stock[i].equals(newItem)) {
-                return i;
+     * @param newItem is a FoodItem object that is used to check for completely identical item.
+     * @param group   is the group of items that have similar name and catalogue number.
+     * @return the identical item (including production/expiry dates) if found in the group, otherwise returns null.
+     */
+    private FoodItem findIdenticalItem(FoodItem newItem, ItemGroup group) {
+        for (Batch batch = group._batchesByExpiry.get(newItem.getExpiryEpochDay()); batch != null;
+             batch = batch._nextOnDay) {
+            if (batch._item.equals(newItem)) {
+                return batch._item;
             }
-            i++;
         }
-        return -1;
+        return null;
     }
 
     /**
-     * Tries to insert a new food item into _stock array, if identical item is existing, it adds to it's quantity.
+     * Tries to insert a new food item into the stock, if identical item is existing, it adds to it's quantity.
      * If similar items are existing, it adds the new item before the similar items.
-     * Otherwise, it inserts it based on the Catalogue number order in the _stock array.
+     * Otherwise, it inserts it based on the Catalogue number order in the stock.
      *
-     * @param newItem is a FoodItem object to be inserted into _stock array.
-     * @return true if newItem was successfully inserted into _stock, false otherwise.
+     * @param newItem is a FoodItem object to be inserted into the stock.
+     * @return true if newItem was successfully inserted into the stock, false otherwise.
      */
     public boolean addItem(FoodItem newItem) {
-        // Holds the first index of same name and catalogue number item if existed, otherwise holds -1
-        int firstSimilarIndex = indexOfFirstSimilarItem(newItem);
+        return addItem(newItem, true);
+    }
 
-        // last index if array is populated
-        int j = _noOfItems;
+    /**
+     * Adds several food items to the stock, with the same result as adding them one by one with addItem, in order.
+     * The items are sorted once by catalogue number and are stored as they are (not copied), so the caller must not use them afterwards.
+     *
+     * @param newItems is an array of FoodItem objects to be inserted into the stock.
+     * @param count    is the number of items to insert from the start of newItems.
+     */
+    void addAll(FoodItem[] newItems, int count) {
+        // Stable sort - items with the same catalogue number keep their relative order
+        Arrays.sort(newItems, 0, count, Comparator.comparingLong(FoodItem::getCatalogueNumber));
 
-        if (firstSimilarIndex == -1) { // No similar items in stock
+        for (int i = 0; i < count; i++) {
+            addItem(newItems[i], false);
+        }
+    }
 
-            if (_noOfItems == MAX_STOCK) { // Stock array is full
-                return false;
-            } else { // There is room for a new stock entry
+    /**
+     * Inserts a new food item into the stock, see addItem.
+     *
+     * @param newItem  is a FoodItem object to be inserted into the stock.
+     * @param copyItem true to store a copy of newItem, false to store newItem itself.
+     * @return true if newItem was successfully inserted into the stock, false otherwise.
+     */
+    private boolean addItem(FoodItem newItem, boolean copyItem) {
+        ItemGroup group = findGroup(newItem.getName(), newItem.getCatalogueNumber());
 
-                while (j > 0 && _stock[j - 1].getCatalogueNumber() > newItem.getCatalogueNumber()) {
-                    _stock[j] = _stock[j - 1];
-                    j--;
-                }
-                _stock[j] = new FoodItem(newItem);
-                _noOfItems++;
-                return true;
-            }
+        if (group == null) { // No similar items in stock -> new group after the items with the same catalogue number
+            group = addGroup(newItem.getName(), newItem.getCatalogueNumber());
         } else { //There is at least one similar item in stock
 
-            int identicalItemsIndex = indexOfIdenticalItem(newItem, firstSimilarIndex);
-            if (identicalItemsIndex == -1) { // No identical item found
-                if (_noOfItems == MAX_STOCK) {
-                    return false;
-                } else {
-                    //insert before first similar
-                    while (j > firstSimilarIndex) {
-                        _stock[j] = _stock[j - 1];
-                        j--;
-                    }
-                    _stock[j] = new FoodItem(newItem);
-                    _noOfItems++;
-                    return true;
-                }
-            } else { // Identical item found -> increase item Quantity
-                _stock[identicalItemsIndex].setQuantity(_stock[identicalItemsIndex].getQuantity() + newItem.getQuantity());
+            group = editableGroup(group);
+            FoodItem identicalItem = findIdenticalItem(newItem, group);
+            if (identicalItem != null) { // Identical item found -> increase item Quantity
+                int oldQuantity = identicalItem.getQuantity();
+                identicalItem.setQuantity(oldQuantity + newItem.getQuantity());
+                changeQuantity(group, identicalItem, identicalItem.getQuantity() - oldQuantity);
                 return true;
             }
         }
+
+        //insert before first similar
+        FoodItem item = copyItem ? new FoodItem(newItem) : newItem;
+        addToIndexes(group, group.add(item, true));
+        return true;
+    }
+
+    /**
+     * Appends a food item at the end of the stock order, without looking for identical items and without copying it.
+     * Used to restore a stock from items that are already in stock order.
+     *
+     * @param item is the FoodItem object to be stored.
+     */
+    void appendItem(FoodItem item) {
+        ItemGroup group = findGroup(item.getName(), item.getCatalogueNumber());
+
+        if (group == null) {
+            group = addGroup(item.getName(), item.getCatalogueNumber());
+        } else {
+            group = editableGroup(group);
+        }
+        addToIndexes(group, group.add(item, false));
+    }
+
+    /**
+     * Creates an empty group of items after the groups with the same catalogue number.
+     *
+     * @param name            is the name of the items.
+     * @param catalogueNumber is the catalogue number of the items.
+     * @return the new group.
+     */
+    private ItemGroup addGroup(String name, long catalogueNumber) {
+        ItemGroup group = new ItemGroup(name, catalogueNumber, _noOfGroups++, _owner);
+
+        _catalogue.put(group);
+        _itemsByName.put(group);
+        return group;
+    }
+
+    /**
+     * Adds a food item that was stored in a group to the indexes and the totals.
+     *
+     * @param group is the group the item was stored in (owned by this stock).
+     * @param batch is the batch of the stored item.
+     */
+    private void addToIndexes(ItemGroup group, Batch batch) {
+        FoodItem item = batch._item;
+
+        _itemsByExpiry.put(new ExpiryEntry(item.getExpiryEpochDay(), group));
+        editableTemperatures().add(item.getMinTemperature(), item.getMaxTemperature(), item.getQuantity());
+        if (_freshness != null) {
+            _freshness.put(item, group._sequence, batch._sequence);
+        }
+        _noOfItems++;
+        _noOfPieces += item.getQuantity();
+        group._quantity += item.getQuantity();
+
+        if (group._noOfBatches == 1) { // First batch of a new group
+            group._maxPrice = item.getPrice();
+            _groupsByMaxPrice.put(group);
+        } else if (item.getPrice() > group._maxPrice) {
+            _groupsByMaxPrice.remove(group);
+            group._maxPrice = item.getPrice();
+            _groupsByMaxPrice.put(group);
+        }
+    }
+
+    /**
+     * Updates the indexes and the totals after the quantity of a stored item was changed.
+     *
+     * @param group is the group of the item (owned by this stock).
+     * @param item  is the stored item.
+     * @param delta is the change of the quantity.
+     */
+    private void changeQuantity(ItemGroup group, FoodItem item, int delta) {
+        editableTemperatures().changeQuantity(item.getMinTemperature(), item.getMaxTemperature(), delta);
+        _noOfPieces += delta;
+        group._quantity += delta;
+    }
+
+    /**
+     * @return an iterator over the stored items in stock order (the items themselves, not copies).
+     */
+    Iterator<FoodItem> items() {
+        return new ItemIterator();
     }
 
     /**
@@ -126,38 +653,43 @@ public class Stock {
      */
     public String order(int amount) {
 
-        String items = "";
+        StringBuilder items = new StringBuilder();
 
-        int currentItemAmount;
+        try {
+            order(amount, items);
+        } catch (IOException e) { // never thrown by StringBuilder
+            throw new IllegalStateException(e);
+        }
 
-        int j;
+        return items.toString();
+    }
 
-        int lastIndexOfSimilarItem;
+    /**
+     * Writes the list of items to order (the same list as order(amount)) to out, without creating intermediate strings.
+     *
+     * @param amount is the max number that if an item quantity passes, is not adjoined to the list.
+     * @param out    the destination of the list
+     * @throws IOException if out fails to append
+     */
+    public void order(int amount, Appendable out) throws IOException {
 
-        for (int i = 0; i < _noOfItems; i++) {
+        int currentItemAmount;
 
-            currentItemAmount = _stock[i].getQuantity();
-            j = i + 1;
-            lastIndexOfSimilarItem = i;
-            while (j < _noOfItems && _stock[j].getName().equals(_stock[i].getName()) && _stock[j].getCatalogueNumber() == _stock[i].getCatalogueNumber()) {
-                currentItemAmount += _stock[j].getQuantity();
-                lastIndexOfSimilarItem = j;
-                j++;
-            }
+        // Number of items that were already counted
+        int counted = 0;
+
+        for (ItemGroup group : _catalogue) {
 
-            // Prevents recounting items that were previously counted
-            i = lastIndexOfSimilarItem;
+            currentItemAmount = group._quantity;
+            counted += group._noOfBatches;
 
             if (currentItemAmount < amount) {
-                if (i == _noOfItems - 1) {
-                    items += _stock[i].getName();
-                } else {
-                    items += _stock[i].getName() + ", ";
+                out.append(group._name);
+                if (counted != _noOfItems) {
+                    out.append(", ");
                 }
             }
         }
-
-        return items;
     }
 
     /**
@@ -168,51 +700,108 @@ public class Stock {
      */
     public int howMany(int temp) {
 
-        int itemsToMove = 0;
+        return _temperatures.howMany(temp);
+    }
 
-        for (int i = 0; i < _noOfItems; i++) {
-            if (_stock[i].getMinTemperature() <= temp && _stock[i].getMaxTemperature() >= temp) {
-                itemsToMove += _stock[i].getQuantity();
+    /**
+     * Removes the batches that a cursor passed (see SaleCursor), changing each of their groups once:
+     * the groups it passed are removed with all their batches, and the batches before the current one are taken out
+     * of the current group, which then moves in the max price index at most once.
+     *
+     * @param cursor is a cursor that was used to sell items.
+     */
+    private void removeSoldOut(SaleCursor cursor) {
+        for (ItemGroup group : cursor._soldOutGroups) {
+            for (Batch batch = group._first; batch != null; batch = batch._next) {
+                removeFromTotals(group, batch);
             }
+            for (int day : group._batchesByExpiry.keySet()) {
+                _itemsByExpiry.remove(new ExpiryEntry(day, group));
+            }
+            _catalogue.remove(group);
+            _itemsByName.remove(group);
+            _groupsByMaxPrice.remove(group);
         }
 
-        return itemsToMove;
+        if (cursor._current != null && cursor._current != cursor._group._first) {
+            ItemGroup group = cursor._group;
+            while (group._first != cursor._current) {
+                Batch batch = group._first;
+                int day = batch._item.getExpiryEpochDay();
+
+                group.remove(batch);
+                if (!group.expiresOn(day)) {
+                    _itemsByExpiry.remove(new ExpiryEntry(day, group));
+                }
+                removeFromTotals(group, batch);
+            }
+            updateMaxPrice(group);
+        }
     }
 
     /**
-     * Removes Food Item object from the stock array at a given index.
+     * Updates the indexes and the totals after an item was taken out of its group, except for the expiry index
+     * and the max price of the group.
      *
-     * @param index is the index of item to be removed from _stock.
+     * @param group is the group of the item (owned by this stock).
+     * @param batch is the batch of the removed item.
      */
-    private void removeItemAtIndex(int index) {
-        for (int j = index; j < _noOfItems - 1; j++) {
-            _stock[j] = _stock[j + 1];
+    private void removeFromTotals(ItemGroup group, Batch batch) {
+        FoodItem item = batch._item;
+
+        editableTemperatures().remove(item.getMinTemperature(), item.getMaxTemperature(), item.getQuantity());
+        if (_freshness != null) {
+            _freshness.remove(item, group._sequence, batch._sequence);
         }
-        _stock[_noOfItems - 1] = null;
         _noOfItems--;
+        _noOfPieces -= item.getQuantity();
+        group._quantity -= item.getQuantity();
     }
 
     /**
-     * Remove food items from stock that have expiry date before the Date parameter, while keeping the array organized.
+     * Updates the max price index after batches were taken out of a group: an empty group is removed from the stock,
+     * otherwise the group moves in the max price index if its highest price changed.
+     *
+     * @param group is the group (owned by this stock).
+     */
+    private void updateMaxPrice(ItemGroup group) {
+        if (group._first == null) {
+            _catalogue.remove(group);
+            _itemsByName.remove(group);
+            _groupsByMaxPrice.remove(group);
+        } else if (group.highestPrice() != group._maxPrice) {
+            _groupsByMaxPrice.remove(group);
+            group._maxPrice = group.highestPrice();
+            _groupsByMaxPrice.put(group);
+        }
+    }
+
+    /**
+     * Remove food items from stock that have expiry date before the Date parameter, while keeping the stock organized.
+     * Only the expired batches are visited, using the expiry index and the batches of each day in the groups, so
+     * removing k batches costs O(k log n).
      *
      * @param d is the date object to be compared with the expiry dates.
      */
     public void removeAfterDate(Date d) {
+        int day = d.toEpochDay();
 
-        for (int i = 0; i < _noOfItems; i++) {
-
-            if (_stock[i].getExpiryDate().before(d)) {
-
-                removeItemAtIndex(i);
+        // Each entry stands for all the batches of its group that expire on its date
+        for (ExpiryEntry entry = _itemsByExpiry.first(); entry != null && entry._day < day;
+             entry = _itemsByExpiry.first()) {
+            _itemsByExpiry.remove(entry);
+            ItemGroup group = editableGroup(findGroup(entry._name, entry._catalogueNumber));
 
-                //Checking the item that took the removed item place in the same index
-                i--;
+            for (Batch batch = group.removeDay(entry._day); batch != null; batch = batch._nextOnDay) {
+                removeFromTotals(group, batch);
             }
+            updateMaxPrice(group);
         }
     }
 
     /**
-     * Finds the most expensive food item in stock.
+     * Finds the most expensive food item in stock (the first one in stock order if there are several).
+     * The group with the highest price is found in the max price index, and only its batches are visited.
      *
      * @return FoodItem object of the most expensive item in stock.
      */
@@ -221,15 +810,13 @@ public class Stock {
             return null;
         }
 
-        FoodItem mostExpensiveItem = _stock[0];
-
-        for (int i = 1; i < _noOfItems; i++) {
-
-            if (_stock[i].getPrice() > mostExpensiveItem.getPrice()) {
-                mostExpensiveItem = _stock[i];
+        ItemGroup group = _groupsByMaxPrice.first();
+        for (Batch batch = group._first; batch != null; batch = batch._next) {
+            if (batch._item.getPrice() == group._maxPrice) {
+                return new FoodItem(batch._item);
             }
         }
-        return new FoodItem(mostExpensiveItem);
+        throw new IllegalStateException("max price index is out of date");
     }
 
     /**
@@ -238,81 +825,231 @@ public class Stock {
      * @return the total number of quantities in stock.
      */
     public int howManyPieces() {
-        int counter = 0;
+        return _noOfPieces;
+    }
 
-        for (int i = 0; i < _noOfItems; i++) {
-            counter += _stock[i].getQuantity();
-        }
+    /**
+     * Counts the total quantity of the items with a name and catalogue number (the same total that order compares).
+     *
+     * @param name            is the name of the item.
+     * @param catalogueNumber is the catalogue number of the item.
+     * @return the total quantity of the item in stock, 0 if it is not in stock.
+     */
+    public int howManyPieces(String name, long catalogueNumber) {
+        ItemGroup group = findGroup(name, catalogueNumber);
 
-        return counter;
+        return group == null ? 0 : group._quantity;
     }
 
     /**
      * @return a string representation of the stock.
      */
     public String toString() {
-        String stockHolder = "";
+        StringBuilder stockHolder = new StringBuilder();
 
-        for (int i = 0; i < _noOfItems; i++) {
-            stockHolder += _stock[i].toString() + "\n";
+        try {
+            appendTo(stockHolder);
+        } catch (IOException e) { // never thrown by StringBuilder
+            throw new IllegalStateException(e);
         }
 
-        return stockHolder;
+        return stockHolder.toString();
+    }
+
+    /**
+     * Writes the string representation of the stock to out item by item, without creating intermediate strings.
+     *
+     * @param out the destination of the stock string, such as a Writer
+     * @throws IOException if out fails to append
+     */
+    public void appendTo(Appendable out) throws IOException {
+        for (ItemGroup group : _catalogue) {
+            for (Batch batch = group._first; batch != null; batch = batch._next) {
+                batch._item.appendTo(out);
+                out.append('\n');
+            }
+        }
     }
 
     /**
-     * Updates the stock array and remove items that were sold given by the itemList.
+     * Updates the stock and remove items that were sold given by the itemList.
+     * Each sold item is taken from the first item in stock with the same name, items that reach zero quantity are removed.
      *
      * @param itemsList is a list of Strings representing items that were sold
      */
     public void updateStock(String[] itemsList) {
 
-        boolean itemUpdatedFlag;
+        // Name -> the first item in stock with that name that was not sold out yet
+        HashMap<String, SaleCursor> cursors = new HashMap<String, SaleCursor>();
 
+        // Sold out items are removed together after all the sales were counted, see removeSoldOut
         for (int i = 0; i < itemsList.length; i++) {
-            itemUpdatedFlag = false;
-            for (int j = 0; j < _noOfItems && !itemUpdatedFlag; j++) {
-                if (itemsList[i].equals(_stock[j].getName())) {
-                    _stock[j].setQuantity(_stock[j].getQuantity() - 1);
-                    if (_stock[j].getQuantity() == 0) {
-
-                        removeItemAtIndex(j);
-                    }
-                    itemUpdatedFlag = true;
+            SaleCursor cursor = cursors.get(itemsList[i]);
+
+            if (cursor == null) {
+                cursor = new SaleCursor(itemsList[i]);
+                cursors.put(itemsList[i], cursor);
+            }
+
+            if (cursor._current != null) {
+                FoodItem soldItem = cursor._current._item;
+                if (soldItem.getQuantity() > 0) {
+                    soldItem.setQuantity(soldItem.getQuantity() - 1);
+                    changeQuantity(cursor._group, soldItem, -1);
+                }
+                if (soldItem.getQuantity() == 0) {
+
+                    cursor.next();
                 }
             }
         }
+
+        for (SaleCursor cursor : cursors.values()) {
+            removeSoldOut(cursor);
+        }
     }
 
     /**
-     * Finds the minimal common temperature between the range of (min to max temperatures) for each item so that the refrigerator should be at that temperature to hold all of the stock items.
+     * Finds the items in stock that are fresh on a date (see FoodItem.isFresh).
+     * O(log n) for each item found, the first freshness query of a stock builds its freshness index in O(n log n).
      *
-     * @return the minimal temperature the refrigerator should be to hold all the stock items or Integer.MAX_VALUE if minimum common temperature is not found or array is empty of stock.
+     * @param d is the date.
+     * @return copies of the fresh items, in stock order.
      */
-    public int getTempOfStock() {
+    public FoodItem[] freshOn(Date d) {
+        return copyItems(freshnessIndex().freshOn(d.toEpochDay()));
+    }
 
-        if (_noOfItems == 0) {
-            return Integer.MAX_VALUE;
+    /**
+     * Finds the items in stock that are fresh on at least one day between two dates.
+     * O(log n) for each item found, the first freshness query of a stock builds its freshness index in O(n log n).
+     *
+     * @param from is the first date.
+     * @param to   is the last date (inclusive).
+     * @return copies of the items that are fresh during the dates, in stock order (empty if to is before from).
+     */
+    public FoodItem[] freshBetween(Date from, Date to) {
+        if (to.before(from)) {
+            return new FoodItem[0];
         }
+        return copyItems(freshnessIndex().freshBetween(from.toEpochDay(), to.toEpochDay()));
+    }
 
-        int minTemp = _stock[0].getMinTemperature();
-        int maxTemp = _stock[0].getMaxTemperature();
+    /**
+     * Counts the quantity of the items that are fresh on each day of a range of days, in one pass over the items:
+     * each item adds its quantity on its first fresh day in the range and takes it back after its last one.
+     *
+     * @param start is the first date.
+     * @param days  is the number of days.
+     * @return the fresh quantity of each day, starting at start.
+     * @throws IllegalArgumentException if days is negative.
+     */
+    public int[] freshQuantitySeries(Date start, int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("negative number of days: " + days);
+        }
 
-        for (int i = 1; i < _noOfItems; i++) {
+        int firstDay = start.toEpochDay();
+        // changes[i] is the change of the fresh quantity between day i - 1 and day i
+        int[] changes = new int[days + 1];
 
-            if (_stock[i].getMaxTemperature() < minTemp || _stock[i].getMinTemperature() > maxTemp) {
-                return Integer.MAX_VALUE;
+        for (Iterator<FoodItem> items = items(); items.hasNext(); ) {
+            FoodItem item = items.next();
+            long from = Math.max((long) item.getProductionEpochDay() - firstDay, 0);
+            long to = Math.min((long) item.getExpiryEpochDay() - firstDay, days - 1);
+            if (from <= to) {
+                changes[(int) from] += item.getQuantity();
+                changes[(int) to + 1] -= item.getQuantity();
             }
+        }
+
+        int[] series = new int[days];
+        int quantity = 0;
+        for (int i = 0; i < days; i++) {
+            quantity += changes[i];
+            series[i] = quantity;
+        }
+        return series;
+    }
 
-            if (_stock[i].getMinTemperature() > minTemp) {
-                minTemp = _stock[i].getMinTemperature();
+    /**
+     * @return the freshness index of the current items, built on the first call. The stock changes it with its items
+     * from then on, so a stock that is never asked about fresh items does not pay for it.
+     */
+    private FreshnessIndex freshnessIndex() {
+        if (_freshness == null) {
+            _freshness = new FreshnessIndex();
+            for (ItemGroup group : _catalogue) {
+                for (Batch batch = group._first; batch != null; batch = batch._next) {
+                    _freshness.put(batch._item, group._sequence, batch._sequence);
+                }
             }
+        }
+        return _freshness;
+    }
 
-            if (_stock[i].getMaxTemperature() < maxTemp) {
-                maxTemp = _stock[i].getMaxTemperature();
+    /**
+     * @return copies of stored items.
+     */
+    private static FoodItem[] copyItems(FoodItem[] items) {
+        for (int i = 0; i < items.length; i++) {
+            items[i] = new FoodItem(items[i]);
+        }
+        return items;
+    }
+
+    /**
+     * Sells units of one item name, with the same result as count entries of the name in updateStock.
+     *
+     * @param name  is the name of the sold item.
+     * @param count is the number of sales.
+     * @return the number of sales that were left after all the items with the name were sold out.
+     */
+    int sell(String name, int count) {
+        SaleCursor cursor = new SaleCursor(name);
+
+        while (count > 0 && cursor._current != null) {
+            FoodItem soldItem = cursor._current._item;
+
+            // An item with no quantity takes one sale and is removed, like in updateStock
+            int sold = soldItem.getQuantity() == 0 ? 1 : Math.min(soldItem.getQuantity(), count);
+            count -= sold;
+            if (soldItem.getQuantity() > 0) {
+                soldItem.setQuantity(soldItem.getQuantity() - sold);
+                changeQuantity(cursor._group, soldItem, -sold);
             }
+            if (soldItem.getQuantity() == 0) {
+                cursor.next();
+            }
+        }
+
+        removeSoldOut(cursor);
+        return count;
+    }
+
+    /**
+     * Checks if order(amount) lists the last group of items in stock, in which case the list does not end with ", ".
+     *
+     * @param amount is the amount given to order.
+     * @return true if the quantity of the last group of items is below amount.
+     */
+    boolean ordersLastGroup(int amount) {
+        ItemGroup lastGroup = _catalogue.last();
+
+        return lastGroup != null && lastGroup._quantity < amount;
+    }
+
+    /**
+     * Finds the minimal common temperature between the range of (min to max temperatures) for each item so that the refrigerator should be at that temperature to hold all of the stock items.
+     *
+     * @return the minimal temperature the refrigerator should be to hold all the stock items or Integer.MAX_VALUE if minimum common temperature is not found or array is empty of stock.
+     */
+    public int getTempOfStock() {
+
+        if (_noOfItems == 0) {
+            return Integer.MAX_VALUE;
         }
 
-        return minTemp;
+        return _temperatures.getCommonTemperature();
     }
 }
@@ -0,0 +1,259 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
+
+/**
+ * This class checks the totals and indexes that a Stock keeps up to date on every change against a full
+ * recomputation from its items: random items are added, sold and removed by date, and after every change the
+ * number of items and pieces, the total of every item (name and catalogue number), order, mostExpensive, howMany,
+ * getTempOfStock and the freshness queries are compared with the values computed by walking over all the items in
+ * stock order.
+ * <p>
+ * Now and then a snapshot is taken and the check goes on with either the snapshot or the stock, so the indexes
+ * that a stock shares with its snapshots are checked too.
+ * <p>
+ * Usage: java StockIndexCheck [operations] [seed]
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class StockIndexCheck {
+
+    private static final int DEFAULT_OPERATIONS = 20000;
+    private static final long DEFAULT_SEED = 1;
+
+    private static final int NO_OF_NAMES = 12;
+    private static final int NO_OF_CATALOGUE_NUMBERS = 5;
+    private static final int NO_OF_DAYS = 60;
+    private static final int MAX_QUANTITY = 12;
+    private static final int MAX_PRICE = 40;
+    private static final int MAX_SALE_SIZE = 10;
+    private static final int MIN_TEMPERATURE = -10;
+    private static final int MAX_TEMPERATURE = 20;
+    // Days between the dates the freshness queries are checked on, and the length of the checked ranges
+    private static final int FRESH_STEP = 7;
+    private static final int FRESH_RANGE = 5;
+
+    private static final int FIRST_DAY = Date.of(1, 1, 2020).toEpochDay();
+
+    private StockIndexCheck() {
+    }
+
+    /**
+     * Runs the check.
+     *
+     * @param args optional number of operations and random seed
+     * @throws IllegalStateException if a value of the stock does not match the recomputed value
+     */
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_OPERATIONS;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+
+        Random random = new Random(seed);
+        Stock stock = new Stock();
+        int maxItems = 0;
+
+        for (int i = 0; i < operations; i++) {
+            int operation = random.nextInt(100);
+
+            if (operation < 55) {
+                stock.addItem(newItem(random));
+            } else if (operation < 85) {
+                String[] sale = new String[random.nextInt(MAX_SALE_SIZE)];
+                for (int item = 0; item < sale.length; item++) {
+                    sale[item] = name(random.nextInt(NO_OF_NAMES + 1));
+                }
+                stock.updateStock(sale);
+            } else if (operation < 90) {
+                stock.removeAfterDate(Date.fromEpochDay(FIRST_DAY + random.nextInt(NO_OF_DAYS)));
+            } else {
+                Stock snapshot = stock.snapshot();
+                check(snapshot, i);
+                if (random.nextBoolean()) {
+                    stock = snapshot;
+                }
+            }
+            check(stock, i);
+            maxItems = Math.max(maxItems, stock.getNumOfItems());
+        }
+
+        System.out.printf("operations: %d, most items: %d%n", operations, maxItems);
+        System.out.println("ok");
+    }
+
+    /**
+     * Compares the values of a stock with the values recomputed from its items.
+     *
+     * @param stock     the stock
+     * @param operation the number of the last operation, for the error message
+     * @throws IllegalStateException if a value does not match
+     */
+    private static void check(Stock stock, int operation) {
+        // Items in stock order, and the total of each item (name and catalogue number) in order of appearance
+        ArrayList<FoodItem> items = new ArrayList<FoodItem>();
+        LinkedHashMap<String, Integer> totals = new LinkedHashMap<String, Integer>();
+        long pieces = 0;
+        for (Iterator<FoodItem> iterator = stock.items(); iterator.hasNext(); ) {
+            FoodItem item = iterator.next();
+            items.add(item);
+            totals.merge(key(item.getName(), item.getCatalogueNumber()), item.getQuantity(), Integer::sum);
+            pieces += item.getQuantity();
+        }
+
+        check(stock.getNumOfItems() == items.size(), operation, "getNumOfItems", stock.getNumOfItems(), items.size());
+        check(stock.howManyPieces() == pieces, operation, "howManyPieces", stock.howManyPieces(), pieces);
+
+        for (int name = 0; name < NO_OF_NAMES; name++) {
+            for (int catalogueNumber = 0; catalogueNumber < NO_OF_CATALOGUE_NUMBERS; catalogueNumber++) {
+                int expected = totals.getOrDefault(key(name(name), catalogueNumber(catalogueNumber)), 0);
+                int actual = stock.howManyPieces(name(name), catalogueNumber(catalogueNumber));
+                check(actual == expected, operation, "howManyPieces(" + name(name) + ", "
+                        + catalogueNumber(catalogueNumber) + ")", actual, expected);
+            }
+        }
+
+        FoodItem mostExpensive = null;
+        for (FoodItem item : items) {
+            if (mostExpensive == null || item.getPrice() > mostExpensive.getPrice()) {
+                mostExpensive = item;
+            }
+        }
+        FoodItem actualMostExpensive = stock.mostExpensive();
+        check(String.valueOf(actualMostExpensive).equals(String.valueOf(mostExpensive))
+                && (mostExpensive == null || actualMostExpensive.getQuantity() == mostExpensive.getQuantity()),
+                operation, "mostExpensive", actualMostExpensive, mostExpensive);
+
+        for (int amount = 0; amount <= MAX_QUANTITY * 2; amount += 3) {
+            String expected = order(items, amount);
+            check(stock.order(amount).equals(expected), operation, "order(" + amount + ")", stock.order(amount),
+                    expected);
+        }
+
+        for (int temp = MIN_TEMPERATURE - 1; temp <= MAX_TEMPERATURE + 1; temp++) {
+            int expected = 0;
+            for (FoodItem item : items) {
+                if (item.getMinTemperature() <= temp && item.getMaxTemperature() >= temp) {
+                    expected += item.getQuantity();
+                }
+            }
+            check(stock.howMany(temp) == expected, operation, "howMany(" + temp + ")", stock.howMany(temp), expected);
+        }
+
+        int commonTemperature = items.isEmpty() ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        int highestCommon = Integer.MAX_VALUE;
+        for (FoodItem item : items) {
+            commonTemperature = Math.max(commonTemperature, item.getMinTemperature());
+            highestCommon = Math.min(highestCommon, item.getMaxTemperature());
+        }
+        if (commonTemperature > highestCommon) {
+            commonTemperature = Integer.MAX_VALUE;
+        }
+        check(stock.getTempOfStock() == commonTemperature, operation, "getTempOfStock", stock.getTempOfStock(),
+                commonTemperature);
+
+        // Items are produced during NO_OF_DAYS and are fresh for up to NO_OF_DAYS / 2 days
+        int lastDay = FIRST_DAY + NO_OF_DAYS * 3 / 2;
+        for (int day = FIRST_DAY - 1; day <= lastDay; day += FRESH_STEP) {
+            ArrayList<String> freshOn = new ArrayList<String>();
+            ArrayList<String> freshBetween = new ArrayList<String>();
+            for (FoodItem item : items) {
+                if (item.getProductionEpochDay() <= day && item.getExpiryEpochDay() >= day) {
+                    freshOn.add(item.toString());
+                }
+                if (item.getProductionEpochDay() <= day + FRESH_RANGE && item.getExpiryEpochDay() >= day) {
+                    freshBetween.add(item.toString());
+                }
+            }
+            Date date = Date.fromEpochDay(day);
+            check(toStrings(stock.freshOn(date)).equals(freshOn), operation, "freshOn(" + date + ")",
+                    toStrings(stock.freshOn(date)), freshOn);
+            Date to = Date.fromEpochDay(day + FRESH_RANGE);
+            check(toStrings(stock.freshBetween(date, to)).equals(freshBetween), operation,
+                    "freshBetween(" + date + ", " + to + ")", toStrings(stock.freshBetween(date, to)), freshBetween);
+        }
+
+        int[] series = stock.freshQuantitySeries(Date.fromEpochDay(FIRST_DAY - 1), lastDay - FIRST_DAY + 2);
+        for (int i = 0; i < series.length; i++) {
+            int day = FIRST_DAY - 1 + i;
+            int expected = 0;
+            for (FoodItem item : items) {
+                if (item.getProductionEpochDay() <= day && item.getExpiryEpochDay() >= day) {
+                    expected += item.getQuantity();
+                }
+            }
+            check(series[i] == expected, operation, "freshQuantitySeries on " + Date.fromEpochDay(day), series[i],
+                    expected);
+        }
+    }
+
+    /**
+     * @return the string representations of items, in order
+     */
+    private static ArrayList<String> toStrings(FoodItem[] items) {
+        ArrayList<String> strings = new ArrayList<String>();
+
+        for (FoodItem item : items) {
+            strings.add(item.toString());
+        }
+        return strings;
+    }
+
+    /**
+     * Computes the order list from the items in stock order, like the original Stock.order: the batches of an item
+     * follow each other, and each item whose total is below amount is listed.
+     */
+    private static String order(ArrayList<FoodItem> items, int amount) {
+        StringBuilder list = new StringBuilder();
+        int i = 0;
+
+        while (i < items.size()) {
+            FoodItem first = items.get(i);
+            int total = 0;
+            while (i < items.size() && items.get(i).getName().equals(first.getName())
+                    && items.get(i).getCatalogueNumber() == first.getCatalogueNumber()) {
+                total += items.get(i).getQuantity();
+                i++;
+            }
+            if (total < amount) {
+                list.append(first.getName());
+                if (i != items.size()) {
+                    list.append(", ");
+                }
+            }
+        }
+        return list.toString();
+    }
+
+    /**
+     * @return a random batch, quantity 0 now and then
+     */
+    private static FoodItem newItem(Random random) {
+        int production = FIRST_DAY + random.nextInt(NO_OF_DAYS);
+        int minTemperature = MIN_TEMPERATURE + random.nextInt(MAX_TEMPERATURE - MIN_TEMPERATURE);
+
+        return new FoodItem(name(random.nextInt(NO_OF_NAMES)), catalogueNumber(random.nextInt(NO_OF_CATALOGUE_NUMBERS)),
+                random.nextInt(MAX_QUANTITY + 1), Date.fromEpochDay(production),
+                Date.fromEpochDay(production + random.nextInt(NO_OF_DAYS / 2)), minTemperature,
+                minTemperature + random.nextInt(MAX_TEMPERATURE - minTemperature + 1), 1 + random.nextInt(MAX_PRICE));
+    }
+
+    private static String name(int name) {
+        return "item" + name;
+    }
+
+    private static long catalogueNumber(int catalogueNumber) {
+        return 1000 + catalogueNumber;
+    }
+
+    private static String key(String name, long catalogueNumber) {
+        return name + "/" + catalogueNumber;
+    }
+
+    private static void check(boolean condition, int operation, String value, Object actual, Object expected) {
+        if (!condition) {
+            throw new IllegalStateException("after operation " + operation + ": " + value + " is " + actual
+                    + ", expected " + expected);
+        }
+    }
+}
@@ -0,0 +1,620 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * This class represents a stock that keeps a write-ahead journal of its changes in a directory, so it can be
+ * recovered after a crash.
+ * <p>
+ * Every change (addItem, updateStock, removeAfterDate) is written to the journal file before it is applied to the
+ * stock, so it survives a crash of the process. The changes are forced to the disk in groups: a change is durable
+ * after sync() returns, and the journal is forced automatically after every group of changes (see
+ * setGroupCommitSize) and by a background thread at most a given time after a change (see setMaxSyncDelay).
+ * When the journal grows beyond a limit (see setCheckpointSize) the stock is written as a checkpoint snapshot and a
+ * new empty journal is started.
+ * <p>
+ * Files in the directory: checkpoint-N.snapshot (a StockSnapshot of the stock) and journal-N.log (the changes made
+ * after checkpoint N). On open, the latest checkpoint is loaded and its journal is replayed, up to the last complete
+ * record.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class StockJournal implements AutoCloseable {
+
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".snapshot";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    // Record types
+    private static final byte ADD_ITEM = 1;
+    private static final byte UPDATE_STOCK = 2;
+    private static final byte REMOVE_AFTER_DATE = 3;
+
+    // Each record: length of the body (int), CRC32 of the body (int), body (type and arguments)
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int DEFAULT_GROUP_COMMIT_SIZE = 1024;
+    private static final long DEFAULT_MAX_SYNC_DELAY_MILLIS = 10;
+    private static final long DEFAULT_CHECKPOINT_SIZE = 64L << 20;
+
+    private final Path _directory;
+    private final Stock _stock;
+
+    private long _generation;
+    private FileChannel _journal;
+
+    private ByteBuffer _record;
+    private final CRC32 _crc;
+    // Changes that were written to the journal file but not forced to the disk, and the time of the first of them
+    private int _unsyncedChanges;
+    private long _firstUnsyncedNanos;
+
+    private int _groupCommitSize;
+    private long _maxSyncDelayNanos;
+    private long _checkpointSize;
+
+    // Forces the journal to the disk when a change waited for the max sync delay
+    private final Thread _syncThread;
+    private boolean _closed;
+    // The failure of the sync thread, thrown by the next call
+    private IOException _syncFailure;
+
+    /**
+     * Creates a StockJournal object for a recovered stock, see open.
+     */
+    private StockJournal(Path directory, Stock stock, long generation, FileChannel journal) {
+        _directory = directory;
+        _stock = stock;
+        _generation = generation;
+        _journal = journal;
+        _record = ByteBuffer.allocate(BUFFER_SIZE);
+        _crc = new CRC32();
+        _unsyncedChanges = 0;
+        _groupCommitSize = DEFAULT_GROUP_COMMIT_SIZE;
+        _maxSyncDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_SYNC_DELAY_MILLIS);
+        _checkpointSize = DEFAULT_CHECKPOINT_SIZE;
+
+        _syncThread = new Thread(this::syncDelayedChanges, "stock-journal-sync");
+        _syncThread.setDaemon(true);
+    }
+
+    /**
+     * Opens the journal in a directory and recovers its stock: loads the latest checkpoint and replays the changes
+     * that were written after it. An incomplete record at the end of the journal (a crash during a write) is dropped.
+     * If the directory has no journal, a new empty stock is created.
+     *
+     * @param directory the directory of the journal (created if it does not exist)
+     * @return the journal, holding the recovered stock
+     * @throws IOException if the files cannot be read or written
+     */
+    public static StockJournal open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        long generation = latestCheckpoint(directory);
+        Stock stock;
+        if (generation < 0) {
+            generation = 0;
+            stock = new Stock();
+        } else {
+            stock = StockSnapshot.read(checkpointFile(directory, generation));
+        }
+
+        FileChannel journal = FileChannel.open(journalFile(directory, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end = replay(journal, stock);
+            journal.truncate(end);
+            journal.position(end);
+            syncDirectory(directory);
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+
+        StockJournal stockJournal = new StockJournal(directory, stock, generation, journal);
+        stockJournal.deleteOldFiles();
+        stockJournal._syncThread.start();
+        return stockJournal;
+    }
+
+    /**
+     * @return the stock of the journal; it must be changed only through the journal
+     */
+    public Stock getStock() {
+        return _stock;
+    }
+
+    /**
+     * Sets the number of changes that are written and forced to the disk together.
+     *
+     * @param groupCommitSize the number of changes in a group (at least 1)
+     */
+    public synchronized void setGroupCommitSize(int groupCommitSize) {
+        if (groupCommitSize >= 1) {
+            _groupCommitSize = groupCommitSize;
+        }
+    }
+
+    /**
+     * Sets the longest time a change waits before it is forced to the disk, when its group is not complete.
+     *
+     * @param maxSyncDelay the time (positive)
+     * @param unit         the unit of maxSyncDelay
+     */
+    public synchronized void setMaxSyncDelay(long maxSyncDelay, TimeUnit unit) {
+        if (maxSyncDelay > 0) {
+            _maxSyncDelayNanos = unit.toNanos(maxSyncDelay);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Sets the size of the journal file after which a checkpoint is written.
+     *
+     * @param checkpointSize the size in bytes (positive)
+     */
+    public synchronized void setCheckpointSize(long checkpointSize) {
+        if (checkpointSize > 0) {
+            _checkpointSize = checkpointSize;
+        }
+    }
+
+    /**
+     * Journals and applies Stock.addItem.
+     *
+     * @param newItem is a FoodItem object to be inserted into the stock.
+     * @return true if newItem was successfully inserted into the stock, false otherwise.
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized boolean addItem(FoodItem newItem) throws IOException {
+        byte[] name = newItem.getName().getBytes(StandardCharsets.UTF_8);
+
+        startRecord(ADD_ITEM, Integer.BYTES + name.length + Long.BYTES + 6 * Integer.BYTES);
+        _record.putInt(name.length).put(name)
+                .putLong(newItem.getCatalogueNumber())
+                .putInt(newItem.getQuantity())
+                .putInt(newItem.getProductionEpochDay())
+                .putInt(newItem.getExpiryEpochDay())
+                .putInt(newItem.getMinTemperature())
+                .putInt(newItem.getMaxTemperature())
+                .putInt(newItem.getPrice());
+        endRecord();
+
+        boolean added = _stock.addItem(newItem);
+        changeApplied();
+        return added;
+    }
+
+    /**
+     * Journals and applies Stock.updateStock.
+     *
+     * @param itemsList is a list of Strings representing items that were sold
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void updateStock(String[] itemsList) throws IOException {
+        byte[][] names = new byte[itemsList.length][];
+        int size = Integer.BYTES;
+
+        for (int i = 0; i < itemsList.length; i++) {
+            names[i] = itemsList[i].getBytes(StandardCharsets.UTF_8);
+            size += Integer.BYTES + names[i].length;
+        }
+
+        startRecord(UPDATE_STOCK, size);
+        _record.putInt(names.length);
+        for (byte[] name : names) {
+            _record.putInt(name.length).put(name);
+        }
+        endRecord();
+
+        _stock.updateStock(itemsList);
+        changeApplied();
+    }
+
+    /**
+     * Journals and applies Stock.removeAfterDate.
+     *
+     * @param d is the date object to be compared with the expiry dates.
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void removeAfterDate(Date d) throws IOException {
+        startRecord(REMOVE_AFTER_DATE, Integer.BYTES);
+        _record.putInt(d.toEpochDay());
+        endRecord();
+
+        _stock.removeAfterDate(d);
+        changeApplied();
+    }
+
+    /**
+     * Forces the changes that were written to the journal to the disk.
+     * Writes a checkpoint if the journal grew beyond the checkpoint size.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void sync() throws IOException {
+        force();
+
+        if (_journal.size() >= _checkpointSize) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Writes the stock as a new checkpoint and starts a new empty journal after it.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        force();
+
+        long generation = _generation + 1;
+        Path checkpoint = checkpointFile(_directory, generation);
+        Path temporary = _directory.resolve(checkpoint.getFileName() + ".tmp");
+
+        StockSnapshot.write(_stock, temporary);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        // Once the checkpoint exists, it replaces the previous checkpoint and its journal
+        Files.move(temporary, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        FileChannel journal = FileChannel.open(journalFile(_directory, generation),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            // The rename and the new journal are durable only after the directory is forced
+            syncDirectory(_directory);
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        _journal.close();
+        _journal = journal;
+        _generation = generation;
+
+        deleteOldFiles();
+    }
+
+    /**
+     * Syncs the changes that were not synced yet and closes the journal.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public void close() throws IOException {
+        synchronized (this) {
+            if (_closed) {
+                return;
+            }
+            _closed = true;
+            notifyAll();
+
+            try {
+                force();
+            } finally {
+                _journal.close();
+            }
+        }
+
+        try {
+            _syncThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts a new record in the record buffer.
+     *
+     * @param type     the type of the change
+     * @param argsSize the size of the arguments in bytes
+     */
+    private void startRecord(byte type, int argsSize) {
+        int size = RECORD_HEADER_SIZE + 1 + argsSize;
+
+        if (_record.capacity() < size) {
+            _record = ByteBuffer.allocate(Math.max(size, _record.capacity() * 2));
+        }
+        _record.clear();
+        _record.position(RECORD_HEADER_SIZE);
+        _record.put(type);
+    }
+
+    /**
+     * Completes the record header (length and checksum) and writes the record to the journal file (without forcing
+     * it to the disk).
+     *
+     * @throws IOException if the journal cannot be written, or the sync thread failed
+     */
+    private void endRecord() throws IOException {
+        if (_syncFailure != null) {
+            throw new IOException("the journal could not be forced to the disk", _syncFailure);
+        }
+
+        int bodyLength = _record.position() - RECORD_HEADER_SIZE;
+
+        _crc.reset();
+        _crc.update(_record.array(), RECORD_HEADER_SIZE, bodyLength);
+        _record.putInt(0, bodyLength);
+        _record.putInt(Integer.BYTES, (int) _crc.getValue());
+        _record.flip();
+
+        while (_record.hasRemaining()) {
+            _journal.write(_record);
+        }
+    }
+
+    /**
+     * Counts an applied change and syncs when a group of changes is complete.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    private void changeApplied() throws IOException {
+        if (_unsyncedChanges++ == 0) {
+            // The sync thread forces this change after the max sync delay if the group is not complete by then
+            _firstUnsyncedNanos = System.nanoTime();
+            notifyAll();
+        }
+        if (_unsyncedChanges >= _groupCommitSize) {
+            sync();
+        }
+    }
+
+    /**
+     * Forces the changes that were written to the journal file to the disk.
+     *
+     * @throws IOException if the journal cannot be forced
+     */
+    private void force() throws IOException {
+        if (_unsyncedChanges > 0) {
+            _journal.force(false);
+            _unsyncedChanges = 0;
+        }
+    }
+
+    /**
+     * The sync thread: forces the journal when its oldest unsynced change waited for the max sync delay,
+     * until the journal is closed.
+     */
+    private synchronized void syncDelayedChanges() {
+        while (!_closed) {
+            try {
+                if (_unsyncedChanges == 0 || _syncFailure != null) {
+                    wait();
+                    continue;
+                }
+
+                long delay = _firstUnsyncedNanos + _maxSyncDelayNanos - System.nanoTime();
+                if (delay > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, delay);
+                } else {
+                    force();
+                }
+            } catch (IOException e) {
+                _syncFailure = e;
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forces the entries of a directory (created, renamed and deleted files) to the disk.
+     *
+     * @param directory the directory
+     * @throws IOException if the directory cannot be forced
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Some platforms (Windows) cannot open a directory, there the entries are left to the file system
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Applies the complete records of a journal file to a stock.
+     * The journal is read in blocks of BUFFER_SIZE bytes (more for a larger record), so its size is not limited by
+     * the size of an array.
+     *
+     * @param journal the journal file
+     * @param stock   the stock to apply the changes to
+     * @return the position after the last complete record
+     * @throws IOException if the journal cannot be read
+     */
+    private static long replay(FileChannel journal, Stock stock) throws IOException {
+        long size = journal.size();
+        ByteBuffer contents = ByteBuffer.allocate(BUFFER_SIZE);
+        contents.limit(0);
+
+        CRC32 crc = new CRC32();
+        // The position of the next record in the journal, the contents start with it
+        long end = 0;
+
+        while (true) {
+            contents = read(journal, contents, end, RECORD_HEADER_SIZE);
+            if (contents.remaining() < RECORD_HEADER_SIZE) {
+                break;
+            }
+            int bodyLength = contents.getInt(contents.position());
+            int checksum = contents.getInt(contents.position() + 4);
+            // A length beyond the end of the journal belongs to a torn record, no buffer is allocated for it
+            if (bodyLength <= 0 || bodyLength > size - end - RECORD_HEADER_SIZE) {
+                break;
+            }
+
+            contents = read(journal, contents, end, RECORD_HEADER_SIZE + bodyLength);
+            if (contents.remaining() < RECORD_HEADER_SIZE + bodyLength) {
+                break;
+            }
+            int bodyStart = contents.position() + RECORD_HEADER_SIZE;
+
+            crc.reset();
+            crc.update(contents.array(), bodyStart, bodyLength);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            applyRecord(contents.slice(bodyStart, bodyLength), stock);
+
+            contents.position(bodyStart + bodyLength);
+            end += RECORD_HEADER_SIZE + bodyLength;
+        }
+        return end;
+    }
+
+    /**
+     * Makes sure that a buffer holds at least count bytes of the journal from a position, reading the journal after
+     * the bytes it already holds.
+     *
+     * @param journal  the journal file
+     * @param contents the buffer, its remaining bytes are the journal from position on
+     * @param position the position in the journal of the first remaining byte
+     * @param count    the number of bytes needed
+     * @return the buffer (a larger one if count is larger than the buffer), with fewer than count remaining bytes
+     * only if the journal ends before them
+     * @throws IOException if the journal cannot be read
+     */
+    private static ByteBuffer read(FileChannel journal, ByteBuffer contents, long position, int count)
+            throws IOException {
+        if (contents.remaining() >= count) {
+            return contents;
+        }
+
+        if (count > contents.capacity()) {
+            contents = ByteBuffer.allocate(count).put(contents);
+        } else {
+            contents.compact();
+        }
+        while (contents.hasRemaining()) {
+            if (journal.read(contents, position + contents.position()) < 0) {
+                break;
+            }
+        }
+        return contents.flip();
+    }
+
+    /**
+     * Applies one journal record to a stock.
+     *
+     * @param body  the body of the record (type and arguments)
+     * @param stock the stock to apply the change to
+     * @throws IOException if the record type is unknown
+     */
+    private static void applyRecord(ByteBuffer body, Stock stock) throws IOException {
+        byte type = body.get();
+
+        if (type == ADD_ITEM) {
+            stock.addItem(new FoodItem(readString(body),
+                    body.getLong(),
+                    body.getInt(),
+                    body.getInt(),
+                    body.getInt(),
+                    body.getInt(),
+                    body.getInt(),
+                    body.getInt()));
+        } else if (type == UPDATE_STOCK) {
+            String[] itemsList = new String[body.getInt()];
+            for (int i = 0; i < itemsList.length; i++) {
+                itemsList[i] = readString(body);
+            }
+            stock.updateStock(itemsList);
+        } else if (type == REMOVE_AFTER_DATE) {
+            stock.removeAfterDate(Date.fromEpochDay(body.getInt()));
+        } else {
+            throw new IOException("unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * Reads a string (length in bytes and UTF-8 bytes) from a record.
+     */
+    private static String readString(ByteBuffer body) {
+        byte[] bytes = new byte[body.getInt()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the latest checkpoint in a directory.
+     *
+     * @param directory the directory of the journal
+     * @return the generation of the latest checkpoint, or -1 if there is no checkpoint
+     * @throws IOException if the directory cannot be read
+     */
+    private static long latestCheckpoint(Path directory) throws IOException {
+        long latest = -1;
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, CHECKPOINT_PREFIX + "*" + CHECKPOINT_SUFFIX)) {
+            for (Path file : files) {
+                long generation = generationOf(file, CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+                if (generation > latest) {
+                    latest = generation;
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Deletes the checkpoints and journals of the previous generations, and unfinished checkpoints.
+     *
+     * @throws IOException if the directory cannot be read or a file cannot be deleted
+     */
+    private void deleteOldFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(_directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long generation = -1;
+
+                if (name.startsWith(CHECKPOINT_PREFIX) && name.endsWith(CHECKPOINT_SUFFIX + ".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.startsWith(CHECKPOINT_PREFIX) && name.endsWith(CHECKPOINT_SUFFIX)) {
+                    generation = generationOf(file, CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+                } else if (name.startsWith(JOURNAL_PREFIX) && name.endsWith(JOURNAL_SUFFIX)) {
+                    generation = generationOf(file, JOURNAL_PREFIX, JOURNAL_SUFFIX);
+                }
+
+                if (generation >= 0 && generation < _generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the generation number in the name of a journal file, or -1 if it has no number
+     */
+    private static long generationOf(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Path checkpointFile(Path directory, long generation) {
+        return directory.resolve(CHECKPOINT_PREFIX + generation + CHECKPOINT_SUFFIX);
+    }
+
+    private static Path journalFile(Path directory, long generation) {
+        return directory.resolve(JOURNAL_PREFIX + generation + JOURNAL_SUFFIX);
+    }
+}
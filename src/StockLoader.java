@@ -0,0 +1,201 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class loads the food items of a stock from a delimited text file (such as CSV).
+ * Each line holds one food item:
+ * name, catalogue number, quantity, production date, expiry date, min temperature, max temperature, price
+ * with the dates written as dd/mm/yyyy. Empty lines are skipped.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class StockLoader {
+
+    private static final char DEFAULT_DELIMITER = ',';
+    private static final int FIELDS_IN_LINE = 8;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int DATE_LENGTH = 10;
+
+    private StockLoader() {
+    }
+
+    /**
+     * Creates a new stock from a comma separated file.
+     *
+     * @param file the file to read
+     * @return a new Stock object with the items of the file
+     * @throws IOException if the file cannot be read or a line is not a valid food item
+     */
+    public static Stock load(Path file) throws IOException {
+        Stock stock = new Stock();
+
+        load(file, DEFAULT_DELIMITER, stock);
+        return stock;
+    }
+
+    /**
+     * Adds the items of a delimited file to a stock, with the same result as calling addItem for each line in order.
+     * The items are sorted once by catalogue number before they are inserted.
+     *
+     * @param file      the file to read
+     * @param delimiter the character between the fields of a line
+     * @param stock     the stock to add the items to
+     * @throws IOException if the file cannot be read or a line is not a valid food item
+     */
+    public static void load(Path file, char delimiter, Stock stock) throws IOException {
+        FoodItem[] items = new FoodItem[INITIAL_CAPACITY];
+        int noOfItems = 0;
+
+        // Items with the same name share one String
+        HashMap<String, String> names = new HashMap<String, String>();
+
+        // Start and end of each field in the current line
+        int[] starts = new int[FIELDS_IN_LINE];
+        int[] ends = new int[FIELDS_IN_LINE];
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                if (!splitFields(line, delimiter, starts, ends)) {
+                    throw new IOException(file + ":" + lineNumber + ": expected " + FIELDS_IN_LINE + " fields");
+                }
+
+                if (noOfItems == items.length) {
+                    items = Arrays.copyOf(items, items.length * 2);
+                }
+                try {
+                    items[noOfItems] = parseItem(line, starts, ends, names);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+                noOfItems++;
+            }
+        }
+
+        stock.addAll(items, noOfItems);
+    }
+
+    /**
+     * Finds the fields of a line.
+     *
+     * @param line      the line
+     * @param delimiter the character between the fields
+     * @param starts    filled with the start index of each field
+     * @param ends      filled with the end index (exclusive) of each field
+     * @return true if the line has exactly the expected number of fields
+     */
+    private static boolean splitFields(String line, char delimiter, int[] starts, int[] ends) {
+        int field = 0;
+        int start = 0;
+
+        for (int i = 0; i <= line.length(); i++) {
+            if (i == line.length() || line.charAt(i) == delimiter) {
+                if (field == FIELDS_IN_LINE) {
+                    return false;
+                }
+                starts[field] = start;
+                ends[field] = i;
+                field++;
+                start = i + 1;
+            }
+        }
+        return field == FIELDS_IN_LINE;
+    }
+
+    /**
+     * Creates a food item from the fields of a line.
+     *
+     * @param line   the line
+     * @param starts the start index of each field
+     * @param ends   the end index (exclusive) of each field
+     * @param names  the names that were already read
+     * @return the food item of the line
+     * @throws IllegalArgumentException if a field is not valid
+     */
+    private static FoodItem parseItem(String line, int[] starts, int[] ends, HashMap<String, String> names) {
+        String name = line.substring(starts[0], ends[0]).trim();
+        String sameName = names.putIfAbsent(name, name);
+        if (sameName != null) {
+            name = sameName;
+        }
+
+        return new FoodItem(name,
+                parseLong(line, starts[1], ends[1]),
+                parseInt(line, starts[2], ends[2]),
+                parseDate(line, starts[3], ends[3]),
+                parseDate(line, starts[4], ends[4]),
+                parseInt(line, starts[5], ends[5]),
+                parseInt(line, starts[6], ends[6]),
+                parseInt(line, starts[7], ends[7]));
+    }
+
+    /**
+     * Parses a date (dd/mm/yyyy) from part of a line.
+     *
+     * @param line  the line
+     * @param start the start index of the date
+     * @param end   the end index (exclusive) of the date
+     * @return the date, or 1/1/2000 if the numbers are not a valid date
+     * @throws IllegalArgumentException if the text is not a date
+     */
+    private static Date parseDate(String line, int start, int end) {
+        while (start < end && line.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        // Fast path for dates written exactly as dd/mm/yyyy
+        if (end - start == DATE_LENGTH && line.charAt(start + 2) == '/' && line.charAt(start + 5) == '/') {
+            return Date.parse(line, start);
+        }
+
+        int firstSlash = line.indexOf('/', start);
+        int secondSlash = firstSlash < 0 ? -1 : line.indexOf('/', firstSlash + 1);
+
+        if (firstSlash < 0 || secondSlash < 0 || secondSlash >= end) {
+            throw new IllegalArgumentException("not a date: " + line.substring(start, end));
+        }
+        return Date.of(parseInt(line, start, firstSlash), parseInt(line, firstSlash + 1, secondSlash), parseInt(line, secondSlash + 1, end));
+    }
+
+    /**
+     * Parses an int from part of a line, ignoring surrounding spaces.
+     */
+    private static int parseInt(String line, int start, int end) {
+        while (start < end && line.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return Integer.parseInt(line, start, end, 10);
+    }
+
+    /**
+     * Parses a long from part of a line, ignoring surrounding spaces.
+     */
+    private static long parseLong(String line, int start, int end) {
+        while (start < end && line.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return Long.parseLong(line, start, end, 10);
+    }
+}
@@ -0,0 +1,388 @@
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class represents a pipeline that applies changes to a stock from many threads without locks.
+ * <p>
+ * The threads that change the stock (producers) publish events to a ring buffer of a fixed size: a producer takes
+ * the next sequence number with one atomic increment, waits only if the buffer is full, writes the event to the
+ * slot of its sequence and publishes the slot by storing the sequence in it. One applier thread takes all the
+ * published events in sequence order and applies them to the stock, the sales of consecutive updateStock events
+ * are applied with one call. The stock is only used by the applier thread.
+ * <p>
+ * Readers ask for a snapshot, which is also an event: the applier takes a snapshot of the stock when it gets to it
+ * (see Stock.snapshot), so the snapshot holds exactly the changes that were published before it.
+ * <p>
+ * close publishes a STOP event after it marks the pipeline closed. A producer that claimed its sequence while the
+ * pipeline was being closed publishes an empty event instead of its change and gets an IllegalStateException, so
+ * the applier never waits for it and no change is published after STOP. If the applier thread stops, the snapshots
+ * it did not take fail.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class StockPipeline implements AutoCloseable {
+
+    // Event types
+    private static final int ADD_ITEM = 1;
+    private static final int UPDATE_STOCK = 2;
+    private static final int REMOVE_AFTER_DATE = 3;
+    private static final int SNAPSHOT = 4;
+    private static final int STOP = 5;
+    // Published in place of a change that was rejected because the pipeline was closed
+    private static final int SKIP = 6;
+
+    // Number of empty checks before the applier starts sleeping between checks
+    private static final int SPINS_BEFORE_PARK = 100;
+    private static final long PARK_NANOS = 50000;
+
+    private final Stock _stock;
+    private final Event[] _events;
+    private final int _mask;
+
+    // _published[i] is the sequence of the event in slot i once it can be applied
+    private final AtomicLongArray _published;
+    // Next sequence to give to a producer
+    private final AtomicLong _next;
+    // Sequence of the last event the applier finished with, slots up to it can be reused
+    private volatile long _applied;
+
+    private final Thread _applier;
+    private volatile boolean _closed;
+    // True once the applier thread finished, the events after the last applied one are never applied
+    private volatile boolean _stopped;
+    private volatile RuntimeException _failure;
+
+    /**
+     * A slot of the ring buffer. The fields of the event are written by one producer before the slot is published,
+     * and cleared by the applier after it was applied.
+     */
+    private static class Event {
+        private int _type;
+        private FoodItem _item;
+        private String[] _itemsList;
+        private int _day;
+        private CompletableFuture<Stock> _snapshot;
+    }
+
+    /**
+     * Starts a pipeline for a stock. The stock must not be used by other threads until the pipeline is closed.
+     *
+     * @param stock      the stock that the changes are applied to
+     * @param bufferSize the number of events the buffer holds, a power of 2
+     * @throws IllegalArgumentException if bufferSize is not a power of 2
+     */
+    public StockPipeline(Stock stock, int bufferSize) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("buffer size must be a power of 2: " + bufferSize);
+        }
+
+        _stock = stock;
+        _events = new Event[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            _events[i] = new Event();
+        }
+        _mask = bufferSize - 1;
+        _published = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            _published.set(i, -1);
+        }
+        _next = new AtomicLong(0);
+        _applied = -1;
+
+        _applier = new Thread(this::applyEvents, "stock-pipeline");
+        _applier.start();
+    }
+
+    /**
+     * Publishes an item to be added to the stock, see Stock.addItem.
+     *
+     * @param newItem is a FoodItem object to be inserted into the stock (copied, so it can be changed afterwards).
+     * @throws IllegalStateException if the pipeline was closed
+     */
+    public void addItem(FoodItem newItem) {
+        FoodItem item = new FoodItem(newItem);
+        long sequence = claim();
+        Event event = _events[(int) sequence & _mask];
+
+        event._type = ADD_ITEM;
+        event._item = item;
+        publish(sequence);
+    }
+
+    /**
+     * Publishes a list of sold items, see Stock.updateStock.
+     *
+     * @param itemsList is a list of Strings representing items that were sold (copied).
+     * @throws IllegalStateException if the pipeline was closed
+     */
+    public void updateStock(String[] itemsList) {
+        String[] items = itemsList.clone();
+        long sequence = claim();
+        Event event = _events[(int) sequence & _mask];
+
+        event._type = UPDATE_STOCK;
+        event._itemsList = items;
+        publish(sequence);
+    }
+
+    /**
+     * Publishes the removal of the items that expire before a date, see Stock.removeAfterDate.
+     *
+     * @param d is the date object to be compared with the expiry dates.
+     * @throws IllegalStateException if the pipeline was closed
+     */
+    public void removeAfterDate(Date d) {
+        int day = d.toEpochDay();
+        long sequence = claim();
+        Event event = _events[(int) sequence & _mask];
+
+        event._type = REMOVE_AFTER_DATE;
+        event._day = day;
+        publish(sequence);
+    }
+
+    /**
+     * Asks for a snapshot of the stock with all the changes that were published before this call (by any thread).
+     * The snapshot belongs to the caller and is not changed by the pipeline.
+     *
+     * @return the snapshot, once the applier got to it
+     * @throws IllegalStateException if the pipeline was closed
+     */
+    public CompletableFuture<Stock> snapshot() {
+        CompletableFuture<Stock> snapshot = new CompletableFuture<Stock>();
+        long sequence = claim();
+        Event event = _events[(int) sequence & _mask];
+
+        event._type = SNAPSHOT;
+        event._snapshot = snapshot;
+        publish(sequence);
+
+        // The applier fails the published snapshots it did not take when it stops, unless it stopped before this one
+        // was published
+        if (_stopped) {
+            snapshot.completeExceptionally(new IllegalStateException("pipeline is closed"));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Applies all the events that were published and stops the applier thread.
+     * Changes that are published while the pipeline is closed are rejected with an IllegalStateException.
+     *
+     * @throws IllegalStateException if applying an event failed (the stock has the other changes)
+     */
+    public synchronized void close() {
+        if (_closed) {
+            return;
+        }
+
+        // Producers that claim a sequence after this see the pipeline closed, so no change comes after STOP
+        _closed = true;
+        long sequence = _next.getAndIncrement();
+        if (awaitSlot(sequence)) {
+            _events[(int) sequence & _mask]._type = STOP;
+            publish(sequence);
+        }
+
+        try {
+            _applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (_failure != null) {
+            throw new IllegalStateException("a change to the stock failed", _failure);
+        }
+    }
+
+    /**
+     * Takes the next sequence number, waiting while the buffer is full.
+     * If the pipeline was closed after the sequence was taken, an empty event is published in its place.
+     *
+     * @return the sequence of the event
+     * @throws IllegalStateException if the pipeline was closed
+     */
+    private long claim() {
+        if (_closed) {
+            throw new IllegalStateException("pipeline is closed");
+        }
+
+        long sequence = _next.getAndIncrement();
+        if (!awaitSlot(sequence)) {
+            throw new IllegalStateException("pipeline is closed");
+        }
+
+        // The sequence may come after STOP, then the event would never be applied
+        if (_closed) {
+            _events[(int) sequence & _mask]._type = SKIP;
+            publish(sequence);
+            throw new IllegalStateException("pipeline is closed");
+        }
+        return sequence;
+    }
+
+    /**
+     * Waits until the slot of a sequence is free, that is after the applier finished with the event one round before.
+     *
+     * @return true if the slot is free, false if the applier stopped before it got there
+     */
+    private boolean awaitSlot(long sequence) {
+        while (sequence - _events.length > _applied) {
+            if (_stopped) {
+                return false;
+            }
+            Thread.yield();
+        }
+        return true;
+    }
+
+    /**
+     * Makes an event visible to the applier (the fields of the event were written before).
+     */
+    private void publish(long sequence) {
+        _published.set((int) sequence & _mask, sequence);
+    }
+
+    /**
+     * The applier thread: applies the published events in sequence order until STOP, and then fails the snapshots
+     * that were published but not taken.
+     */
+    private void applyEvents() {
+        try {
+            applyUntilStop();
+        } catch (Error e) {
+            fail(new IllegalStateException("the applier thread failed", e));
+            throw e;
+        } finally {
+            _stopped = true;
+            failPendingSnapshots();
+        }
+    }
+
+    /**
+     * Applies the published events in sequence order until STOP.
+     */
+    private void applyUntilStop() {
+        long next = 0;
+        int idle = 0;
+        ArrayList<String> sales = new ArrayList<String>();
+
+        while (true) {
+            // The last event that is published, with all the events before it
+            long last = next - 1;
+            while (_published.get((int) (last + 1) & _mask) == last + 1) {
+                last++;
+            }
+
+            if (last < next) {
+                if (++idle > SPINS_BEFORE_PARK) {
+                    LockSupport.parkNanos(PARK_NANOS);
+                } else {
+                    Thread.onSpinWait();
+                }
+                continue;
+            }
+            idle = 0;
+
+            boolean stop = false;
+            for (long sequence = next; sequence <= last && !stop; sequence++) {
+                Event event = _events[(int) sequence & _mask];
+
+                // Consecutive sales are applied together
+                if (event._type == UPDATE_STOCK) {
+                    for (String item : event._itemsList) {
+                        sales.add(item);
+                    }
+                } else if (event._type != SKIP) {
+                    applySales(sales);
+                    stop = apply(event);
+                    if (stop) {
+                        last = sequence;
+                    }
+                }
+                event._item = null;
+                event._itemsList = null;
+                event._snapshot = null;
+            }
+            applySales(sales);
+
+            next = last + 1;
+            _applied = last;
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fails the snapshots of the published events after the last applied one: no event after STOP is applied.
+     */
+    private void failPendingSnapshots() {
+        for (long sequence = _applied + 1; _published.get((int) sequence & _mask) == sequence; sequence++) {
+            Event event = _events[(int) sequence & _mask];
+            if (event._type == SNAPSHOT && event._snapshot != null) {
+                event._snapshot.completeExceptionally(new IllegalStateException("pipeline is closed"));
+            }
+        }
+    }
+
+    /**
+     * Records a failed change: the first failure is the one reported, the later ones are added to it as suppressed.
+     * Called only by the applier thread.
+     */
+    private void fail(RuntimeException e) {
+        if (_failure == null) {
+            _failure = e;
+        } else {
+            _failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Applies the collected sales with one call to updateStock and clears them.
+     */
+    private void applySales(ArrayList<String> sales) {
+        if (sales.isEmpty()) {
+            return;
+        }
+        try {
+            _stock.updateStock(sales.toArray(new String[0]));
+        } catch (RuntimeException e) {
+            fail(e);
+        }
+        sales.clear();
+    }
+
+    /**
+     * Applies an event that is not a sale.
+     *
+     * @return true if the event is STOP
+     */
+    private boolean apply(Event event) {
+        try {
+            switch (event._type) {
+                case ADD_ITEM:
+                    _stock.addItem(event._item);
+                    break;
+                case REMOVE_AFTER_DATE:
+                    _stock.removeAfterDate(Date.fromEpochDay(event._day));
+                    break;
+                case SNAPSHOT:
+                    event._snapshot.complete(_stock.snapshot());
+                    break;
+                default: // STOP
+                    return true;
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+            if (event._type == SNAPSHOT) {
+                event._snapshot.completeExceptionally(e);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * This class writes the contents of a stock to a binary snapshot file and restores a stock from it.
+ * <p>
+ * File layout (big endian):
+ * magic (int), version (int), number of names (int), number of items (int),
+ * the names table (for each name: length in bytes (int) and UTF-8 bytes),
+ * and the items in stock order, each with a fixed size record:
+ * name index (int), catalogue number (long), quantity (int), production day (int), expiry day (int),
+ * min temperature (int), max temperature (int), price (int).
+ * Dates are written as number of days since 1/1/1970.
+ * <p>
+ * A restored stock is built from the records as they are, without validating or sorting the items again.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+public class StockSnapshot {
+
+    private static final int MAGIC = 0x53544B53; // "STKS"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 36;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private StockSnapshot() {
+    }
+
+    /**
+     * Writes the contents of a stock to a snapshot file, replacing the file if it exists.
+     *
+     * @param stock the stock to write
+     * @param file  the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Stock stock, Path file) throws IOException {
+        // Name -> index in the names table, in the order of first appearance
+        HashMap<String, Integer> nameIds = new HashMap<String, Integer>();
+        for (Iterator<FoodItem> items = stock.items(); items.hasNext(); ) {
+            nameIds.putIfAbsent(items.next().getName(), nameIds.size());
+        }
+        String[] names = new String[nameIds.size()];
+        for (String name : nameIds.keySet()) {
+            names[nameIds.get(name)] = name;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(names.length).putInt(stock.getNumOfItems());
+
+            for (String name : names) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                ensureRoom(channel, buffer, Integer.BYTES);
+                buffer.putInt(bytes.length);
+                for (int written = 0; written < bytes.length; ) {
+                    ensureRoom(channel, buffer, 1);
+                    int length = Math.min(buffer.remaining(), bytes.length - written);
+                    buffer.put(bytes, written, length);
+                    written += length;
+                }
+            }
+
+            for (Iterator<FoodItem> items = stock.items(); items.hasNext(); ) {
+                FoodItem item = items.next();
+                ensureRoom(channel, buffer, RECORD_SIZE);
+                buffer.putInt(nameIds.get(item.getName()))
+                        .putLong(item.getCatalogueNumber())
+                        .putInt(item.getQuantity())
+                        .putInt(item.getProductionEpochDay())
+                        .putInt(item.getExpiryEpochDay())
+                        .putInt(item.getMinTemperature())
+                        .putInt(item.getMaxTemperature())
+                        .putInt(item.getPrice());
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Restores a stock from a snapshot file, reading the whole file into memory.
+     *
+     * @param file the snapshot file
+     * @return a new Stock object with the items of the snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static Stock read(Path file) throws IOException {
+        return read(file, false);
+    }
+
+    /**
+     * Restores a stock from a snapshot file.
+     *
+     * @param file   the snapshot file
+     * @param mapped true to map the file into memory instead of copying it into a buffer
+     * @return a new Stock object with the items of the snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static Stock read(Path file, boolean mapped) throws IOException {
+        ByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + ": snapshot is too large");
+            }
+
+            if (mapped) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // keep reading until the buffer is full
+                }
+                buffer.flip();
+            }
+        }
+
+        return read(buffer, file);
+    }
+
+    /**
+     * Restores a stock from the contents of a snapshot file.
+     *
+     * @param buffer the contents of the file
+     * @param file   the snapshot file (for error messages)
+     * @return a new Stock object with the items of the snapshot
+     * @throws IOException if the contents are not a valid snapshot
+     */
+    private static Stock read(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException(file + ": not a stock snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException(file + ": unsupported snapshot version " + version);
+        }
+        int noOfNames = buffer.getInt();
+        int noOfItems = buffer.getInt();
+
+        try {
+            String[] names = new String[noOfNames];
+            for (int i = 0; i < noOfNames; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                names[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            if (buffer.remaining() != (long) noOfItems * RECORD_SIZE) {
+                throw new IOException(file + ": snapshot is truncated or corrupted");
+            }
+
+            Stock stock = new Stock();
+            for (int i = 0; i < noOfItems; i++) {
+                stock.appendItem(new FoodItem(names[buffer.getInt()],
+                        buffer.getLong(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getInt(),
+                        buffer.getInt()));
+            }
+            return stock;
+        } catch (RuntimeException e) { // BufferUnderflowException, NegativeArraySizeException, bad name index
+            throw new IOException(file + ": snapshot is truncated or corrupted", e);
+        }
+    }
+
+    /**
+     * Makes sure the buffer has room for some bytes, writing its contents to the channel if needed.
+     */
+    private static void ensureRoom(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes the contents of the buffer to the channel and clears it.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,284 @@
+import java.util.Arrays;
+
+/**
+ * This class represents an index of the storage temperatures of the items in a stock.
+ * It keeps the quantities of the items by their min and max temperatures in prefix sum trees (Fenwick trees),
+ * over the distinct temperatures that were seen, so that counting the items that can be held in a given
+ * temperature takes O(log n), and keeps the common temperature range of all of the items.
+ *
+ * @author Noy Segal
+ * @version 2020a
+ */
+class TemperatureIndex {
+
+    // Distinct temperatures that were seen (min or max of an item), sorted
+    private int[] _temps;
+    private int _noOfTemps;
+
+    // Quantities of the items by the index of their min/max temperature, and prefix sum trees over them
+    private int[] _minQuantity;
+    private int[] _maxQuantity;
+    private int[] _minTree;
+    private int[] _maxTree;
+
+    // Number of items by the index of their min/max temperature
+    private int[] _minCount;
+    private int[] _maxCount;
+
+    // Index of the highest min temperature and of the lowest max temperature of the items, -1 if there are no items
+    private int _highestMin;
+    private int _lowestMax;
+
+    private final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Creates a new empty TemperatureIndex object
+     */
+    TemperatureIndex() {
+        _temps = new int[INITIAL_CAPACITY];
+        _noOfTemps = 0;
+        _minQuantity = new int[INITIAL_CAPACITY];
+        _maxQuantity = new int[INITIAL_CAPACITY];
+        _minCount = new int[INITIAL_CAPACITY];
+        _maxCount = new int[INITIAL_CAPACITY];
+        _minTree = new int[INITIAL_CAPACITY + 1];
+        _maxTree = new int[INITIAL_CAPACITY + 1];
+        _highestMin = -1;
+        _lowestMax = -1;
+    }
+
+    /**
+     * Copy constructor for TemperatureIndex, in O(number of distinct temperatures).
+     *
+     * @param other the TemperatureIndex object to copy
+     */
+    TemperatureIndex(TemperatureIndex other) {
+        _temps = other._temps.clone();
+        _noOfTemps = other._noOfTemps;
+        _minQuantity = other._minQuantity.clone();
+        _maxQuantity = other._maxQuantity.clone();
+        _minCount = other._minCount.clone();
+        _maxCount = other._maxCount.clone();
+        _minTree = other._minTree.clone();
+        _maxTree = other._maxTree.clone();
+        _highestMin = other._highestMin;
+        _lowestMax = other._lowestMax;
+    }
+
+    /**
+     * Adds an item to the index.
+     *
+     * @param minTemperature the min temperature of the item
+     * @param maxTemperature the max temperature of the item
+     * @param quantity       the quantity of the item
+     */
+    void add(int minTemperature, int maxTemperature, int quantity) {
+        int min = indexOfTemperature(minTemperature);
+        int max = indexOfTemperature(maxTemperature);
+
+        _minCount[min]++;
+        _maxCount[max]++;
+        if (_highestMin == -1 || min > _highestMin) {
+            _highestMin = min;
+        }
+        if (_lowestMax == -1 || max < _lowestMax) {
+            _lowestMax = max;
+        }
+        addQuantity(min, max, quantity);
+    }
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param minTemperature the min temperature of the item
+     * @param maxTemperature the max temperature of the item
+     * @param quantity       the quantity of the item when removed
+     */
+    void remove(int minTemperature, int maxTemperature, int quantity) {
+        int min = indexOfTemperature(minTemperature);
+        int max = indexOfTemperature(maxTemperature);
+
+        addQuantity(min, max, -quantity);
+        _minCount[min]--;
+        _maxCount[max]--;
+
+        //The extreme temperature may belong to another item, otherwise look for the next one
+        while (_highestMin >= 0 && _minCount[_highestMin] == 0) {
+            _highestMin--;
+        }
+        while (_lowestMax >= 0 && _lowestMax < _noOfTemps && _maxCount[_lowestMax] == 0) {
+            _lowestMax++;
+        }
+        if (_lowestMax == _noOfTemps) {
+            _lowestMax = -1;
+        }
+    }
+
+    /**
+     * Changes the quantity of an item in the index.
+     *
+     * @param minTemperature the min temperature of the item
+     * @param maxTemperature the max temperature of the item
+     * @param delta          the change in the quantity of the item
+     */
+    void changeQuantity(int minTemperature, int maxTemperature, int delta) {
+        addQuantity(indexOfTemperature(minTemperature), indexOfTemperature(maxTemperature), delta);
+    }
+
+    /**
+     * Counts the quantity of the items that their min/max temperature range includes temp.
+     *
+     * @param temp is the temperature.
+     * @return total quantity of the items that can be held in temp.
+     */
+    int howMany(int temp) {
+        // Items with min <= temp, minus the items that also have max < temp
+        return prefixSum(_minTree, upperBound(temp)) - prefixSum(_maxTree, lowerBound(temp));
+    }
+
+    /**
+     * @return the minimal temperature that is in the range of all of the items, or Integer.MAX_VALUE if there is none.
+     */
+    int getCommonTemperature() {
+        if (_highestMin == -1 || _temps[_highestMin] > _temps[_lowestMax]) {
+            return Integer.MAX_VALUE;
+        }
+        return _temps[_highestMin];
+    }
+
+    /**
+     * Adds quantity to the trees at the given min/max temperature indexes.
+     *
+     * @param min   the index of the min temperature
+     * @param max   the index of the max temperature
+     * @param delta the quantity to add
+     */
+    private void addQuantity(int min, int max, int delta) {
+        _minQuantity[min] += delta;
+        _maxQuantity[max] += delta;
+        for (int i = min + 1; i <= _noOfTemps; i += i & -i) {
+            _minTree[i] += delta;
+        }
+        for (int i = max + 1; i <= _noOfTemps; i += i & -i) {
+            _maxTree[i] += delta;
+        }
+    }
+
+    /**
+     * @param tree  a prefix sum tree
+     * @param count number of temperatures to sum (from the lowest)
+     * @return the sum of the quantities of the lowest count temperatures
+     */
+    private int prefixSum(int[] tree, int count) {
+        int sum = 0;
+
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @param temp is the temperature.
+     * @return number of the known temperatures that are lower than or equal to temp.
+     */
+    private int upperBound(int temp) {
+        int low = 0;
+        int high = _noOfTemps;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (_temps[middle] <= temp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param temp is the temperature.
+     * @return number of the known temperatures that are lower than temp.
+     */
+    private int lowerBound(int temp) {
+        int low = 0;
+        int high = _noOfTemps;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (_temps[middle] < temp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the index of a temperature, adds the temperature if it was not seen before.
+     *
+     * @param temp is the temperature.
+     * @return the index of the temperature.
+     */
+    private int indexOfTemperature(int temp) {
+        int index = upperBound(temp);
+
+        if (index > 0 && _temps[index - 1] == temp) {
+            return index - 1;
+        }
+
+        if (_noOfTemps == _temps.length) {
+            int capacity = _temps.length * 2;
+            _temps = Arrays.copyOf(_temps, capacity);
+            _minQuantity = Arrays.copyOf(_minQuantity, capacity);
+            _maxQuantity = Arrays.copyOf(_maxQuantity, capacity);
+            _minCount = Arrays.copyOf(_minCount, capacity);
+            _maxCount = Arrays.copyOf(_maxCount, capacity);
+            _minTree = new int[capacity + 1];
+            _maxTree = new int[capacity + 1];
+        }
+
+        // Inserts the new temperature in order
+        int moved = _noOfTemps - index;
+        System.arraycopy(_temps, index, _temps, index + 1, moved);
+        System.arraycopy(_minQuantity, index, _minQuantity, index + 1, moved);
+        System.arraycopy(_maxQuantity, index, _maxQuantity, index + 1, moved);
+        System.arraycopy(_minCount, index, _minCount, index + 1, moved);
+        System.arraycopy(_maxCount, index, _maxCount, index + 1, moved);
+        _temps[index] = temp;
+        _minQuantity[index] = 0;
+        _maxQuantity[index] = 0;
+        _minCount[index] = 0;
+        _maxCount[index] = 0;
+        _noOfTemps++;
+
+        if (_highestMin >= index) {
+            _highestMin++;
+        }
+        if (_lowestMax >= index) {
+            _lowestMax++;
+        }
+
+        rebuildTrees();
+        return index;
+    }
+
+    /**
+     * Rebuilds the prefix sum trees from the quantities in O(n).
+     */
+    private void rebuildTrees() {
+        for (int i = 1; i <= _noOfTemps; i++) {
+            _minTree[i] = _minQuantity[i - 1];
+            _maxTree[i] = _maxQuantity[i - 1];
+        }
+        for (int i = 1; i <= _noOfTemps; i++) {
+            int parent = i + (i & -i);
+            if (parent <= _noOfTemps) {
+                _minTree[parent] += _minTree[i];
+                _maxTree[parent] += _maxTree[i];
+            }
+        }
+    }
+}